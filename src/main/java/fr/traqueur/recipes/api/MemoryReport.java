@@ -0,0 +1,59 @@
+package fr.traqueur.recipes.api;
+
+import org.bukkit.NamespacedKey;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * This record represents an estimate of the heap retained by the registered recipes.
+ * An object shared between recipes is counted once, by the first recipe referencing it.
+ * @param totalBytes the estimated bytes retained by all the recipes
+ * @param bytesByRecipe the estimated bytes retained by each recipe, ingredients included, in registration order
+ * @param bytesByIngredientType the estimated bytes retained by the ingredients of each type
+ * @param ingredientsByType the number of distinct ingredients of each type
+ */
+public record MemoryReport(long totalBytes, Map<NamespacedKey, Long> bytesByRecipe,
+                           Map<String, Long> bytesByIngredientType, Map<String, Integer> ingredientsByType) {
+
+    /**
+     * Create a new report.
+     * @param totalBytes the estimated bytes retained by all the recipes
+     * @param bytesByRecipe the estimated bytes retained by each recipe, ingredients included, in registration order
+     * @param bytesByIngredientType the estimated bytes retained by the ingredients of each type
+     * @param ingredientsByType the number of distinct ingredients of each type
+     */
+    public MemoryReport {
+        bytesByRecipe = Collections.unmodifiableMap(new LinkedHashMap<>(bytesByRecipe));
+        bytesByIngredientType = Collections.unmodifiableMap(new TreeMap<>(bytesByIngredientType));
+        ingredientsByType = Collections.unmodifiableMap(new TreeMap<>(ingredientsByType));
+    }
+
+    /**
+     * Get the estimated bytes retained by some recipes, such as the recipes of a file.
+     * @param keys the keys of the recipes
+     * @return the estimated bytes, unknown recipes count as 0
+     */
+    public long bytesOf(Collection<NamespacedKey> keys) {
+        long bytes = 0;
+        for (NamespacedKey key : keys) {
+            bytes += this.bytesByRecipe.getOrDefault(key, 0L);
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder()
+                .append(bytesByRecipe.size()).append(" recipes, ").append(totalBytes / 1024).append(" KiB");
+        for (Map.Entry<String, Long> entry : bytesByIngredientType.entrySet()) {
+            builder.append(", ").append(entry.getKey()).append(": ")
+                    .append(ingredientsByType.getOrDefault(entry.getKey(), 0)).append(" (")
+                    .append(entry.getValue() / 1024).append(" KiB)");
+        }
+        return builder.toString();
+    }
+}
@@ -1,22 +1,45 @@
 package fr.traqueur.recipes.api;
 
 import fr.traqueur.recipes.impl.domains.ItemRecipe;
-import fr.traqueur.recipes.impl.domains.recipes.RecipeConfiguration;
-import org.bukkit.configuration.file.YamlConfiguration;
+import fr.traqueur.recipes.impl.loader.RecipeCache;
+import fr.traqueur.recipes.impl.loader.RecipeFileParser;
+import fr.traqueur.recipes.impl.loader.RecipeSpec;
+import fr.traqueur.recipes.impl.loader.RecipeWatcher;
+import org.bukkit.NamespacedKey;
 import org.bukkit.plugin.Plugin;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.CodeSource;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 import java.util.stream.Stream;
+import java.util.zip.CheckedInputStream;
 
 /**
  * RecipeLoader allows you to load recipes from multiple sources
@@ -24,6 +47,26 @@ import java.util.stream.Stream;
  */
 public class RecipeLoader {
 
+    /**
+     * The default time an asynchronous reload can take on the main thread per tick, in milliseconds
+     */
+    private static final long DEFAULT_TICK_BUDGET = 5L;
+
+    /**
+     * The default time without change before reloading the changed files, in milliseconds
+     */
+    private static final long DEFAULT_DEBOUNCE = 500L;
+
+    /**
+     * The name of the cache file in the plugin's data folder
+     */
+    private static final String CACHE_FILE = "recipes.cache";
+
+    /**
+     * The order of registration of the recipes (higher priority first)
+     */
+    private static final Comparator<ItemRecipe> PRIORITY_ORDER = (r1, r2) -> Integer.compare(r2.priority(), r1.priority());
+
     /**
      * The plugin instance
      */
@@ -44,6 +87,41 @@ public class RecipeLoader {
      */
     private final List<File> files = new ArrayList<>();
 
+    /**
+     * The number of threads parsing the files, 1 to parse them on the calling thread
+     */
+    private int parallelism = 1;
+
+    /**
+     * The time an asynchronous reload can take on the main thread per tick, in milliseconds
+     */
+    private long tickBudget = DEFAULT_TICK_BUDGET;
+
+    /**
+     * The recipes of each file, as of the last load; replaced as a whole, never modified
+     */
+    private volatile Map<Path, List<ItemRecipe>> recipesByFile = Map.of();
+
+    /**
+     * The thread running the asynchronous reloads one after the other, stopped while idle
+     */
+    private final ThreadPoolExecutor reloadExecutor;
+
+    /**
+     * The lock held by the reload in progress, from the reading of the files until the recipes are applied
+     */
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    /**
+     * The watcher of the files, null if the files are not watched
+     */
+    private RecipeWatcher watcher;
+
+    /**
+     * The cache of the parsed files, null if the cache is disabled
+     */
+    private RecipeCache cache;
+
     /**
      * Create a new RecipeLoader
      * Can be instantiated via RecipesAPI.createLoader()
@@ -53,6 +131,12 @@ public class RecipeLoader {
     protected RecipeLoader(Plugin plugin, RecipesAPI api) {
         this.plugin = plugin;
         this.api = api;
+        this.reloadExecutor = new ThreadPoolExecutor(1, 1, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, plugin.getName() + "-RecipeReload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.reloadExecutor.allowCoreThreadTimeOut(true);
     }
 
     /**
@@ -107,6 +191,108 @@ public class RecipeLoader {
         return this;
     }
 
+    /**
+     * Parse the files on a pool of worker threads
+     * Only reading the YAML and validating the recipes run on the workers: the ingredients are still parsed and
+     * the recipes built and registered on the thread calling {@link #load()} or {@link #reload()},
+     * in the same order as a sequential load.
+     * @param threads The number of worker threads, 1 to parse the files on the calling thread
+     * @return This RecipeLoader instance for chaining
+     */
+    public RecipeLoader parallel(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be at least 1.");
+        }
+        this.parallelism = threads;
+        return this;
+    }
+
+    /**
+     * Set the time an asynchronous reload can take on the main thread per tick
+     * @param millis The budget per tick, in milliseconds (5 by default)
+     * @return This RecipeLoader instance for chaining
+     * @see #reloadAsync()
+     */
+    public RecipeLoader tickBudget(long millis) {
+        if (millis < 1) {
+            throw new IllegalArgumentException("The tick budget must be at least 1 ms.");
+        }
+        this.tickBudget = millis;
+        return this;
+    }
+
+    /**
+     * Keep a binary cache of the parsed files in the plugin's data folder
+     * Files whose size and content are unchanged since the last load are not read as YAML nor validated again,
+     * their recipes are built from the cache. Changed files are parsed and their cache entry replaced.
+     * @return This RecipeLoader instance for chaining
+     */
+    public RecipeLoader useCache() {
+        RecipeCache cache = new RecipeCache(new File(plugin.getDataFolder(), CACHE_FILE).toPath());
+        try {
+            cache.read();
+        } catch (IOException e) {
+            plugin.getLogger().warning(e.getMessage() + ", it will be rebuilt.");
+        }
+        this.cache = cache;
+        return this;
+    }
+
+    /**
+     * Watch the configured folders and files, and reload the recipes of the changed files
+     * Bursts of changes (e.g. a git pull) are coalesced: the files are reloaded once no change happened for 500 ms.
+     * Only the changed files are parsed again, and only the recipes they add, change or remove are applied,
+     * like {@link #reloadAsync()}. Call it after {@link #load()}.
+     * @return This RecipeLoader instance for chaining
+     * @see #watch(long)
+     */
+    public RecipeLoader watch() {
+        return this.watch(DEFAULT_DEBOUNCE);
+    }
+
+    /**
+     * Watch the configured folders and files, and reload the recipes of the changed files
+     * @param debounceMillis The time without change before reloading the changed files, in milliseconds
+     * @return This RecipeLoader instance for chaining
+     * @see #watch()
+     */
+    public synchronized RecipeLoader watch(long debounceMillis) {
+        if (debounceMillis < 0) {
+            throw new IllegalArgumentException("The debounce delay can't be negative.");
+        }
+        this.stopWatching();
+        try {
+            this.watcher = new RecipeWatcher(
+                    this.folders.stream().map(File::toPath).toList(),
+                    this.files.stream().map(File::toPath).toList(),
+                    debounceMillis, this::reloadChanged, plugin.getLogger());
+            this.watcher.start();
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not watch the recipe files: " + e.getMessage());
+        }
+        return this;
+    }
+
+    /**
+     * Stop watching the configured folders and files
+     * Should be called when the plugin is disabled.
+     */
+    public synchronized void stopWatching() {
+        if (this.watcher != null) {
+            this.watcher.stop();
+            this.watcher = null;
+        }
+    }
+
+    /**
+     * Parse the files on one worker thread per available processor
+     * @return This RecipeLoader instance for chaining
+     * @see #parallel(int)
+     */
+    public RecipeLoader parallel() {
+        return this.parallel(Runtime.getRuntime().availableProcessors());
+    }
+
     /**
      * Extract default recipes from the JAR to the data folder
      * This will scan for .yml files in the specified JAR path and extract them
@@ -146,79 +332,545 @@ public class RecipeLoader {
 
     /**
      * Load all recipes from the configured folders and files
+     * The recipes are registered in a single batch, see {@link RecipesAPI#addRecipes(java.util.Collection)}.
      * @return The number of recipes loaded
+     * @throws IllegalArgumentException if a recipe is already registered; nothing is registered then
+     * @throws IllegalStateException if a reload is in progress
      */
     public int load() {
-        List<ItemRecipe> recipes = new ArrayList<>();
+        this.lockNow();
+        try {
+            List<ItemRecipe> recipes = this.publish(this.buildFiles(this.readFiles(this.collectFiles())));
+
+            // Register sorted recipes, sent to the players once
+            api.addRecipes(recipes);
+
+            plugin.getLogger().info("Loaded " + recipes.size() + " recipes via RecipeLoader.");
+            return recipes.size();
+        } finally {
+            this.reloadLock.unlock();
+        }
+    }
+
+    /**
+     * Reload all recipes from the configured folders and files
+     * The recipes are parsed first, then the registered recipes are replaced in a single atomic step:
+     * crafting events never see a partial or empty list of recipes
+     * @return The number of recipes loaded
+     * @throws IllegalStateException if another reload is in progress
+     */
+    public int reload() {
+        this.lockNow();
+        try {
+            List<ItemRecipe> recipes = this.publish(this.buildFiles(this.readFiles(this.collectFiles())));
+            api.replaceRecipes(recipes);
+
+            plugin.getLogger().info("Reloaded " + recipes.size() + " recipes via RecipeLoader.");
+            return recipes.size();
+        } finally {
+            this.reloadLock.unlock();
+        }
+    }
+
+    /**
+     * Reload all recipes from the configured folders and files without freezing the main thread
+     * The files are read and parsed off the main thread, then the recipes are built on the main thread,
+     * where the server and the hooks can be read. Only the recipes added, changed or removed since the last load
+     * are applied on the main thread, within the tick budget. Unchanged recipes are left untouched.
+     * The asynchronous reloads run one after the other, each one starting once the previous one is applied.
+     * @return A future completed on the main thread with the summary of the reload
+     * @see #tickBudget(long)
+     */
+    public CompletableFuture<ReloadSummary> reloadAsync() {
+        long start = System.nanoTime();
+        return this.submitReload(() -> {
+            Map<Path, ReadFile> files = this.readFiles(this.collectFiles());
+            List<ItemRecipe> recipes = this.publish(this.onMainThread(() -> this.buildFiles(files)));
+            return api.replaceRecipesAsync(recipes, this.tickBudget, start);
+        }).whenComplete((summary, error) -> {
+            if (error != null) {
+                plugin.getLogger().severe("Could not reload recipes: " + error.getMessage());
+            } else {
+                plugin.getLogger().info("Reloaded recipes via RecipeLoader: " + summary + ".");
+            }
+        });
+    }
+
+    /**
+     * Run a reload on the reload thread, after the previous ones
+     * The lock is held until the recipes are applied, then the future is completed on the main thread.
+     * @param reload The reload, returning the future of the application of the recipes
+     * @return A future completed on the main thread with the summary of the reload
+     */
+    private CompletableFuture<ReloadSummary> submitReload(Callable<CompletableFuture<ReloadSummary>> reload) {
+        CompletableFuture<ReloadSummary> future = new CompletableFuture<>();
+        this.reloadExecutor.execute(() -> {
+            ReloadSummary summary = null;
+            Throwable error = null;
+            this.reloadLock.lock();
+            try {
+                summary = reload.call().get();
+            } catch (ExecutionException e) {
+                error = e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error = e;
+            } catch (Exception e) {
+                error = e;
+            } finally {
+                this.reloadLock.unlock();
+            }
+            this.completeOnMainThread(future, summary, error);
+        });
+        return future;
+    }
+
+    /**
+     * Complete the future of a reload on the main thread, or at once if the plugin is disabled
+     * @param future The future of the reload
+     * @param summary The summary of the reload, if it succeeded
+     * @param error The error of the reload, or null if it succeeded
+     */
+    private void completeOnMainThread(CompletableFuture<ReloadSummary> future, ReloadSummary summary, Throwable error) {
+        Runnable completion = () -> {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(summary);
+            }
+        };
+        if (!plugin.isEnabled()) {
+            completion.run();
+            return;
+        }
+        plugin.getServer().getScheduler().runTask(plugin, completion);
+    }
+
+    /**
+     * Run a task on the main thread and wait for its result
+     * @param task The task
+     * @param <T> The type of the result
+     * @return The result of the task
+     * @throws Exception if the task failed or the wait was interrupted
+     */
+    private <T> T onMainThread(Callable<T> task) throws Exception {
+        if (plugin.getServer().isPrimaryThread()) {
+            return task.call();
+        }
+        try {
+            return plugin.getServer().getScheduler().callSyncMethod(plugin, task).get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    /**
+     * Take the reload lock on the calling thread
+     * The synchronous loads don't wait: the reload in progress may need the main thread to finish.
+     * @throws IllegalStateException if a reload is in progress
+     */
+    private void lockNow() {
+        if (!this.reloadLock.tryLock()) {
+            throw new IllegalStateException("A reload of the recipes is already in progress.");
+        }
+    }
+
+    /**
+     * Estimate the heap retained by the recipes of each loaded file
+     * Useful to find the recipe files that bloat the heap.
+     * @param report The memory report of the API, see {@link RecipesAPI#memoryReport()}
+     * @return The estimated bytes retained by the registered recipes of each file, largest first
+     */
+    public Map<Path, Long> getMemoryByFile(MemoryReport report) {
+        List<Map.Entry<Path, Long>> entries = new ArrayList<>();
+        for (Map.Entry<Path, List<ItemRecipe>> entry : this.recipesByFile.entrySet()) {
+            List<NamespacedKey> keys = new ArrayList<>(entry.getValue().size());
+            for (ItemRecipe recipe : entry.getValue()) {
+                keys.add(recipe.getKey());
+            }
+            entries.add(Map.entry(entry.getKey(), report.bytesOf(keys)));
+        }
+        entries.sort(Map.Entry.<Path, Long>comparingByValue().reversed());
+        Map<Path, Long> memoryByFile = new LinkedHashMap<>();
+        for (Map.Entry<Path, Long> entry : entries) {
+            memoryByFile.put(entry.getKey(), entry.getValue());
+        }
+        return memoryByFile;
+    }
+
+    /**
+     * Reload the recipes of the changed files, called by the watcher once the changes are settled
+     * Waits until the changes are applied, so the next changes are handled after them.
+     * @param changed The changed files, or null if everything must be reloaded
+     */
+    private void reloadChanged(Set<Path> changed) {
+        if (changed == null) {
+            await(this.reloadAsync());
+            return;
+        }
+        ReloadSummary summary = await(this.reloadFilesAsync(changed));
+        if (summary != null) {
+            plugin.getLogger().info("Reloaded " + changed.size() + " changed recipe files: " + summary + ".");
+        }
+    }
+
+    /**
+     * Reload the recipes of some files, after the reloads in progress
+     * The files are read off the main thread and their recipes built on the main thread, like {@link #reloadAsync()}.
+     * Only the recipes of these files can be added, changed or removed, but the registered recipes
+     * of every file are kept in the global priority order.
+     * @param changed The changed files
+     * @return A future completed on the main thread with the summary of the reload
+     */
+    private CompletableFuture<ReloadSummary> reloadFilesAsync(Set<Path> changed) {
+        long start = System.nanoTime();
+        return this.submitReload(() -> {
+            Map<Path, List<ItemRecipe>> recipesByFile = new LinkedHashMap<>(this.recipesByFile);
+            List<NamespacedKey> scope = new ArrayList<>();
+            Map<Path, ReadFile> files = new LinkedHashMap<>();
+            for (Path path : changed) {
+                Path file = keyOf(path.toFile());
+                List<ItemRecipe> previous = recipesByFile.get(file);
+                if (previous != null) {
+                    for (ItemRecipe recipe : previous) {
+                        scope.add(recipe.getKey());
+                    }
+                }
+                if (!Files.isRegularFile(file)) {
+                    recipesByFile.remove(file);
+                    continue;
+                }
+                try {
+                    files.put(file, this.readFile(file.toFile()));
+                } catch (Exception e) {
+                    reportError(file.toFile(), e);
+                }
+            }
+
+            Map<Path, ParsedFile> built = this.onMainThread(() -> {
+                Map<Path, ParsedFile> parsed = new LinkedHashMap<>();
+                for (Map.Entry<Path, ReadFile> entry : files.entrySet()) {
+                    try {
+                        parsed.put(entry.getKey(), this.buildFile(entry.getValue()));
+                    } catch (Exception e) {
+                        reportError(entry.getValue().file(), e);
+                    }
+                }
+                return parsed;
+            });
+            for (Map.Entry<Path, ParsedFile> entry : built.entrySet()) {
+                // Keep the recipes of a broken file registered until it is fixed.
+                if (!entry.getValue().failed() || !recipesByFile.containsKey(entry.getKey())) {
+                    recipesByFile.put(entry.getKey(), entry.getValue().recipes());
+                }
+            }
+
+            // Every recipe of the loader is given, so the registry follows the global priority order;
+            // the recipes of the unchanged files are left untouched.
+            List<ItemRecipe> recipes = this.publish(recipesByFile);
+            return api.replaceRecipesAsync(recipes, scope, this.tickBudget, start);
+        });
+    }
+
+    /**
+     * Wait for a reload to be applied, giving up if the watcher is stopped
+     * @param future The future of the reload
+     * @return The summary of the reload, or null if it failed or the watcher was stopped
+     */
+    private ReloadSummary await(CompletableFuture<ReloadSummary> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            plugin.getLogger().severe("Could not reload the changed recipes: " + e.getCause().getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Collect the configured recipe files
+     * @return The files of the folders, then the individual files
+     */
+    private List<File> collectFiles() {
+        List<File> files = new ArrayList<>();
 
         // Load from folders
         for (File folder : folders) {
-            loadFromFolder(folder, recipes);
+            collectFromFolder(folder, files);
         }
 
         // Load from individual files
-        for (File file : files) {
-            loadRecipe(file, recipes);
+        files.addAll(this.files);
+        return files;
+    }
+
+    /**
+     * Publish the recipes of every file, as the new state of the loader
+     * The map of the recipes by file is replaced as a whole, and the cache forgets the files that are gone.
+     * The shared ingredients are kept: another reload may be reading them.
+     * @param recipesByFile The recipes of each file
+     * @return The recipes, sorted by priority (higher priority first)
+     */
+    private List<ItemRecipe> publish(Map<Path, List<ItemRecipe>> recipesByFile) {
+        this.recipesByFile = Collections.unmodifiableMap(recipesByFile);
+        if (this.cache != null) {
+            this.cache.retainAll(recipesByFile.keySet());
+            this.saveCache();
+        }
+
+        List<ItemRecipe> recipes = new ArrayList<>();
+        for (List<ItemRecipe> fileRecipes : recipesByFile.values()) {
+            recipes.addAll(fileRecipes);
         }
 
         // Sort recipes by priority (higher priority first)
-        recipes.sort((r1, r2) -> Integer.compare(r2.priority(), r1.priority()));
+        recipes.sort(PRIORITY_ORDER);
+        return recipes;
+    }
 
-        // Register sorted recipes
-        for (ItemRecipe recipe : recipes) {
-            api.addRecipe(recipe);
+    /**
+     * Read and parse recipe files, on worker threads if the loader is parallel
+     * @param files The files to read
+     * @return The read files, in the order of the files
+     */
+    private Map<Path, ReadFile> readFiles(List<File> files) {
+        return this.parallelism > 1 && files.size() > 1 ? readInParallel(files) : readSequentially(files);
+    }
+
+    /**
+     * Read and parse recipe files on the calling thread
+     * @param files The files to read
+     * @return The read files, in the order of the files
+     */
+    private Map<Path, ReadFile> readSequentially(List<File> files) {
+        Map<Path, ReadFile> read = new LinkedHashMap<>();
+        for (File file : files) {
+            try {
+                read.put(keyOf(file), this.readFile(file));
+            } catch (Exception e) {
+                reportError(file, e);
+            }
         }
+        return read;
+    }
 
-        plugin.getLogger().info("Loaded " + recipes.size() + " recipes via RecipeLoader.");
-        return recipes.size();
+    /**
+     * Read and parse recipe files on a bounded pool of worker threads
+     * The errors are reported per file, in the order of the files
+     * @param files The files to read
+     * @return The read files, in the order of the files
+     */
+    private Map<Path, ReadFile> readInParallel(List<File> files) {
+        Map<Path, ReadFile> read = new LinkedHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.parallelism, files.size()));
+        try {
+            List<Future<ReadFile>> results = new ArrayList<>(files.size());
+            for (File file : files) {
+                results.add(executor.submit(() -> this.readFile(file)));
+            }
+            for (int i = 0; i < files.size(); i++) {
+                try {
+                    read.put(keyOf(files.get(i)), results.get(i).get());
+                } catch (ExecutionException e) {
+                    reportError(files.get(i), e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            plugin.getLogger().severe("Interrupted while loading recipes, " + read.size() + " files were parsed.");
+        } finally {
+            executor.shutdownNow();
+        }
+        return read;
     }
 
     /**
-     * Reload all recipes from the configured folders and files
-     * This will unregister all existing recipes and reload them
-     * @return The number of recipes loaded
+     * Build the recipes of read files
+     * Must run on the main thread, or on the thread loading the recipes synchronously.
+     * @param files The read files
+     * @return The recipes of each file, in the order of the files
      */
-    public int reload() {
-        api.unregisterRecipes();
-        return load();
+    private Map<Path, List<ItemRecipe>> buildFiles(Map<Path, ReadFile> files) {
+        Map<Path, List<ItemRecipe>> recipes = new LinkedHashMap<>();
+        for (Map.Entry<Path, ReadFile> entry : files.entrySet()) {
+            try {
+                recipes.put(entry.getKey(), this.buildFile(entry.getValue()).recipes());
+            } catch (Exception e) {
+                reportError(entry.getValue().file(), e);
+            }
+        }
+        return recipes;
     }
 
     /**
-     * Load all recipes from a folder (recursive)
+     * Collect the recipe files of a folder (recursive)
      * @param folder The folder to load recipes from
-     * @param recipes The list to add loaded recipes to
+     * @param files The list to add the files to
      */
-    private void loadFromFolder(File folder, List<ItemRecipe> recipes) {
+    private void collectFromFolder(File folder, List<File> files) {
         try (Stream<Path> stream = Files.walk(folder.toPath())) {
             List<File> ymlFiles = stream.map(Path::toFile)
                     .filter(File::isFile)
                     .filter(f -> f.getName().endsWith(".yml"))
                     .toList();
 
-            for (File file : ymlFiles) {
-                loadRecipe(file, recipes);
-            }
+            files.addAll(ymlFiles);
         } catch (IOException exception) {
             plugin.getLogger().severe("Could not load recipes from folder " + folder.getAbsolutePath() + ": " + exception.getMessage());
         }
     }
 
     /**
-     * Load a recipe from a file
-     * @param file The file to load the recipe from
-     * @param recipes The list to add the loaded recipe to
+     * Read and validate a recipe file, without building its recipes
+     * A file can hold several recipes under top-level keys, and several YAML documents
+     * (see {@link RecipeFileParser}). If the cache is enabled and the file is unchanged,
+     * the file is not parsed and its recipes will be built from the cache.
+     * The server and the hooks are not read, so it can run on any thread.
+     * @param file The file to read
+     * @return The read file
+     * @throws IOException if the file can't be read
      */
-    private void loadRecipe(File file, List<ItemRecipe> recipes) {
-        try {
-            YamlConfiguration configuration = YamlConfiguration.loadConfiguration(file);
-            ItemRecipe recipe = new RecipeConfiguration(file.getName().replace(".yml", ""), configuration)
-                    .build();
-            recipes.add(recipe);
-        } catch (Exception e) {
-            plugin.getLogger().severe("Could not load recipe from file " + file.getAbsolutePath() + ": " + e.getMessage());
-            if (api.isDebug()) {
-                e.printStackTrace();
+    private ReadFile readFile(File file) throws IOException {
+        Path path = keyOf(file);
+        long size = Files.size(path);
+        long modified = file.lastModified();
+        RecipeCache cache = this.cache;
+        if (cache != null && cache.mayContain(path, size)) {
+            List<RecipeSpec> specs = cache.get(path, size, RecipeCache.hash(path), modified);
+            if (specs != null) {
+                return new ReadFile(file, size, 0L, modified, specs, true, false);
+            }
+        }
+        return this.parseFile(file, size, modified);
+    }
+
+    /**
+     * Parse a recipe file, reporting its YAML errors and invalid recipes
+     * The file is streamed: each YAML document is validated into specifications before the next one is parsed,
+     * and the content of the file is hashed as it is read, so neither the content nor the documents are kept.
+     * @param file The file
+     * @param size The size of the file, in bytes
+     * @param modified The last modification time of the file
+     * @return The read file
+     * @throws IOException if the file can't be read
+     */
+    private ReadFile parseFile(File file, long size, long modified) throws IOException {
+        boolean[] failed = {false};
+        List<RecipeSpec> specs = new ArrayList<>();
+        try (CheckedInputStream input = RecipeCache.open(keyOf(file));
+             Reader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            RecipeFileParser.read(file.getName().replace(".yml", ""), reader, source -> {
+                try {
+                    specs.add(source.toSpec());
+                } catch (RuntimeException e) {
+                    failed[0] = true;
+                    reportError(file, source.name(), e);
+                }
+            }, (recipe, e) -> {
+                failed[0] = true;
+                reportError(file, recipe, e);
+            });
+            return new ReadFile(file, size, input.getChecksum().getValue(), modified, specs, false, failed[0]);
+        }
+    }
+
+    /**
+     * Build the recipes of a read file, reporting the invalid ones
+     * An invalid recipe is reported and skipped, the other recipes of the file are still loaded.
+     * Only complete files are cached, so the errors of a broken file are reported on each load.
+     * Must run on the main thread, or on the thread loading the recipes synchronously.
+     * @param read The read file
+     * @return The valid recipes of the file
+     */
+    private ParsedFile buildFile(ReadFile read) {
+        boolean failed = read.failed();
+        List<ItemRecipe> recipes = new ArrayList<>(read.specs().size());
+        for (RecipeSpec spec : read.specs()) {
+            try {
+                recipes.add(spec.build());
+            } catch (RuntimeException e) {
+                // An ingredient can't be parsed, e.g. a hook item that doesn't exist (anymore).
+                failed = true;
+                reportError(read.file(), spec.name(), e);
+            }
+        }
+        RecipeCache cache = this.cache;
+        if (cache != null) {
+            Path path = keyOf(read.file());
+            if (failed) {
+                cache.remove(path);
+            } else if (!read.cached()) {
+                cache.put(path, read.size(), read.hash(), read.modified(), read.specs());
             }
         }
+        return new ParsedFile(recipes, failed);
+    }
+
+    /**
+     * Write the cache of the parsed files, logging a failure
+     */
+    private void saveCache() {
+        try {
+            this.cache.write();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not write the recipe cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get the key of a file in the recipes by file
+     * @param file The file
+     * @return The absolute and normalized path of the file
+     */
+    private static Path keyOf(File file) {
+        return file.toPath().toAbsolutePath().normalize();
+    }
+
+    /**
+     * Report an error raised while loading a recipe file
+     * @param file The file of the recipe
+     * @param error The error
+     */
+    private void reportError(File file, Throwable error) {
+        plugin.getLogger().severe("Could not load recipe from file " + file.getAbsolutePath() + ": " + error.getMessage());
+        if (api.isDebug()) {
+            error.printStackTrace();
+        }
+    }
+
+    /**
+     * Report an error raised while loading a recipe of a file
+     * @param file The file of the recipe
+     * @param recipe The name of the recipe
+     * @param error The error
+     */
+    private void reportError(File file, String recipe, Throwable error) {
+        plugin.getLogger().severe("Could not load recipe " + recipe + " from file " + file.getAbsolutePath() + ": " + error.getMessage());
+        if (api.isDebug()) {
+            error.printStackTrace();
+        }
+    }
+
+    /**
+     * A recipe file read and validated, whose recipes are not built yet
+     * @param file The file
+     * @param size The size of the file, in bytes
+     * @param hash The hash of the content of the file, 0 if it is cached
+     * @param modified The last modification time of the file
+     * @param specs The valid recipes of the file
+     * @param cached If the recipes come from the cache
+     * @param failed If the YAML of the file or some of its recipes are invalid
+     */
+    private record ReadFile(File file, long size, long hash, long modified, List<RecipeSpec> specs,
+                            boolean cached, boolean failed) {
+    }
+
+    /**
+     * The recipes built from a file
+     * @param recipes The valid recipes of the file
+     * @param failed If some recipes of the file are invalid
+     */
+    private record ParsedFile(List<ItemRecipe> recipes, boolean failed) {
     }
 }
\ No newline at end of file
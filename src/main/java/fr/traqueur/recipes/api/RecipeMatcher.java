@@ -0,0 +1,194 @@
+package fr.traqueur.recipes.api;
+
+import fr.traqueur.recipes.impl.domains.ItemRecipe;
+import fr.traqueur.recipes.impl.matcher.ShapedPattern;
+import fr.traqueur.recipes.impl.matcher.ShapelessMatcher;
+import fr.traqueur.recipes.impl.matcher.SmithingMatcher;
+import fr.traqueur.recipes.impl.registry.RecipeRegistry;
+import fr.traqueur.recipes.impl.registry.RecipeSnapshot;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * RecipeMatcher finds and checks the recipes of the API from items, without any inventory nor event
+ * It applies the same rules as the crafting listeners, which delegate to it.
+ * The items expected depend on the type of recipe:
+ * a 2x2 or 3x3 crafting grid, row by row, for crafting recipes;
+ * the template, the base and the addition for smithing transform recipes;
+ * the single input for the other types.
+ * It is thread-safe: each call reads the registered recipes once and allocates nothing while matching.
+ * Hook ingredients are only as thread-safe as the plugin providing them.
+ */
+public final class RecipeMatcher {
+
+    /**
+     * The registry of the recipes of the API
+     */
+    private final RecipeRegistry registry;
+
+    /**
+     * Create a new matcher of the recipes of a registry
+     * @param registry The registry of the recipes
+     */
+    RecipeMatcher(RecipeRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Find the recipe of a type matching the given items
+     * If several recipes match, the one found first is returned.
+     * @param type The type of the recipe
+     * @param items The items, as described in {@link RecipeMatcher}
+     * @return The matching recipe, or null if none
+     * @throws IllegalArgumentException if the number of items doesn't fit the type of recipe
+     */
+    public ItemRecipe find(RecipeType type, ItemStack... items) {
+        checkItems(type, items);
+        RecipeSnapshot snapshot = this.registry.snapshot();
+        return switch (type) {
+            case CRAFTING_SHAPED -> this.findShaped(snapshot, items);
+            case CRAFTING_SHAPELESS -> snapshot.getShapelessIndex().find(items);
+            case SMITHING_TRANSFORM -> this.findByMaterial(snapshot, type, items[1], items);
+            default -> this.findByMaterial(snapshot, type, items[0], items);
+        };
+    }
+
+    /**
+     * Find the recipe matching a crafting grid, shaped recipes first, then shapeless recipes
+     * @param matrix The crafting grid, 2x2 or 3x3, row by row
+     * @return The matching recipe, or null if none
+     * @throws IllegalArgumentException if the grid is not 2x2 or 3x3
+     */
+    public ItemRecipe findCrafting(ItemStack[] matrix) {
+        checkItems(RecipeType.CRAFTING_SHAPED, matrix);
+        RecipeSnapshot snapshot = this.registry.snapshot();
+        ItemRecipe recipe = this.findShaped(snapshot, matrix);
+        return recipe != null ? recipe : snapshot.getShapelessIndex().find(matrix);
+    }
+
+    /**
+     * Find the recipe of a type matching the given items, with its result
+     * @param type The type of the recipe
+     * @param player The player the result is created for, used by hook results (can be null)
+     * @param items The items, as described in {@link RecipeMatcher}
+     * @return The matching recipe and its result, or null if none
+     * @throws IllegalArgumentException if the number of items doesn't fit the type of recipe
+     */
+    public Match match(RecipeType type, Player player, ItemStack... items) {
+        ItemRecipe recipe = this.find(type, items);
+        return recipe == null ? null : new Match(recipe, recipe.toBukkitItemStack(player));
+    }
+
+    /**
+     * Check if the given items match a recipe
+     * @param recipe The recipe
+     * @param items The items, as described in {@link RecipeMatcher}
+     * @return True if the items match the recipe
+     * @throws IllegalArgumentException if the number of items doesn't fit the type of recipe
+     */
+    public boolean matches(ItemRecipe recipe, ItemStack... items) {
+        checkItems(recipe.recipeType(), items);
+        return switch (recipe.recipeType()) {
+            case CRAFTING_SHAPED -> {
+                ShapedPattern pattern = recipe.shapedPattern();
+                yield pattern != null && pattern.matches(items);
+            }
+            case CRAFTING_SHAPELESS -> {
+                ShapelessMatcher matcher = recipe.shapelessMatcher();
+                yield matcher != null && matcher.matches(items);
+            }
+            case SMITHING_TRANSFORM -> {
+                SmithingMatcher matcher = recipe.smithingMatcher();
+                yield matcher != null && matcher.matches(items[0], items[1], items[2]);
+            }
+            default -> items[0] != null && recipe.ingredients()[0].isSimilar(items[0]);
+        };
+    }
+
+    /**
+     * Find the shaped recipe matching a crafting grid
+     * A matching recipe has its first ingredient in the grid, so only the recipes indexed
+     * under the materials of the grid are tried.
+     * @param snapshot The registered recipes
+     * @param matrix The crafting grid
+     * @return The matching recipe, or null if none
+     */
+    private ItemRecipe findShaped(RecipeSnapshot snapshot, ItemStack[] matrix) {
+        for (int slot = 0; slot < matrix.length; slot++) {
+            ItemStack item = matrix[slot];
+            if (item == null || item.getType() == Material.AIR || seenBefore(matrix, slot)) {
+                continue;
+            }
+            for (ItemRecipe recipe : snapshot.getMaterialIndex(RecipeType.CRAFTING_SHAPED).get(item.getType())) {
+                ShapedPattern pattern = recipe.shapedPattern();
+                if (pattern != null && pattern.matches(matrix)) {
+                    return recipe;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find the recipe of a type matching the given items, among the recipes indexed under the material of a key item
+     * @param snapshot The registered recipes
+     * @param type The type of the recipe
+     * @param key The item whose material is indexed: the base for smithing transform recipes, the input otherwise
+     * @param items The items
+     * @return The matching recipe, or null if none
+     */
+    private ItemRecipe findByMaterial(RecipeSnapshot snapshot, RecipeType type, ItemStack key, ItemStack[] items) {
+        if (key == null || key.getType() == Material.AIR) {
+            return null;
+        }
+        for (ItemRecipe recipe : snapshot.getMaterialIndex(type).get(key.getType())) {
+            if (this.matches(recipe, items)) {
+                return recipe;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check if the material of a slot was already seen in a previous slot of the grid
+     * @param matrix The crafting grid
+     * @param slot The slot
+     * @return True if a previous slot holds the same material
+     */
+    private static boolean seenBefore(ItemStack[] matrix, int slot) {
+        Material type = matrix[slot].getType();
+        for (int i = 0; i < slot; i++) {
+            if (matrix[i] != null && matrix[i].getType() == type) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check that the number of items fits a type of recipe
+     * @param type The type of the recipe
+     * @param items The items
+     * @throws IllegalArgumentException if the number of items doesn't fit the type of recipe
+     */
+    private static void checkItems(RecipeType type, ItemStack[] items) {
+        int length = items.length;
+        boolean valid = switch (type) {
+            case CRAFTING_SHAPED, CRAFTING_SHAPELESS -> length == 4 || length == 9;
+            case SMITHING_TRANSFORM -> length == 3;
+            default -> length == 1;
+        };
+        if (!valid) {
+            throw new IllegalArgumentException("A " + type + " recipe can't be matched against " + length + " items.");
+        }
+    }
+
+    /**
+     * A recipe matching some items, with its result
+     * @param recipe The matching recipe
+     * @param result A new copy of the result of the recipe
+     */
+    public record Match(ItemRecipe recipe, ItemStack result) {
+    }
+}
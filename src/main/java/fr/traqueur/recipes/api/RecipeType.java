@@ -88,6 +88,14 @@ public enum RecipeType {
         RecipeType.plugin = plugin;
     }
 
+    /**
+     * Gets the plugin that is using this enum.
+     * @return the plugin
+     */
+    public static Plugin getPlugin() {
+        return plugin;
+    }
+
     /**
      * Gets a list of all the crafting recipes in "smelting" type.
      * @return a list of "smeltings" recipes
@@ -2,13 +2,28 @@ package fr.traqueur.recipes.api;
 
 import fr.traqueur.recipes.api.hook.Hook;
 import fr.traqueur.recipes.impl.PrepareCraftListener;
+import fr.traqueur.recipes.impl.TagListener;
 import fr.traqueur.recipes.impl.domains.ItemRecipe;
+import fr.traqueur.recipes.impl.domains.ingredients.IngredientInterner;
+import fr.traqueur.recipes.impl.debug.MemoryEstimator;
+import fr.traqueur.recipes.impl.debug.RecipeTracer;
+import fr.traqueur.recipes.impl.debug.TraceEvent;
 import fr.traqueur.recipes.impl.domains.recipes.RecipeBuilder;
+import fr.traqueur.recipes.impl.hook.HookListener;
+import fr.traqueur.recipes.impl.registry.RecipeDiff;
+import fr.traqueur.recipes.impl.registry.RecipeDiffTask;
+import fr.traqueur.recipes.impl.registry.RecipeRegistry;
+import fr.traqueur.recipes.impl.registry.RecipeSnapshot;
 import fr.traqueur.recipes.impl.updater.Updater;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Server;
 import org.bukkit.plugin.Plugin;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 /**
  * RecipesAPI is the main class of the API
@@ -16,6 +31,11 @@ import java.util.List;
  */
 public final class RecipesAPI {
 
+    /**
+     * The number of match decisions kept by the tracer
+     */
+    private static final int TRACE_CAPACITY = 256;
+
     /**
      * The plugin instance
      */
@@ -27,9 +47,19 @@ public final class RecipesAPI {
     private final boolean debug;
 
     /**
-     * The list of recipes
+     * The registry of recipes, indexed by key and by type
+     */
+    private final RecipeRegistry recipes;
+
+    /**
+     * The tracer of the match decisions, enabled with the debug mode
      */
-    private final List<ItemRecipe> recipes;
+    private final RecipeTracer tracer;
+
+    /**
+     * The matcher of the recipes, shared by the listeners and the users of the API
+     */
+    private final RecipeMatcher matcher;
 
     /**
      * Create a new instance of RecipesAPI
@@ -39,15 +69,20 @@ public final class RecipesAPI {
     public RecipesAPI(Plugin plugin, boolean debug) {
         this.debug = debug;
         this.plugin = plugin;
-        this.recipes = new ArrayList<>();
+        this.recipes = new RecipeRegistry();
+        this.tracer = new RecipeTracer(TRACE_CAPACITY);
+        this.tracer.setEnabled(debug);
+        this.matcher = new RecipeMatcher(this.recipes);
 
         RecipeType.registerPlugin(plugin);
 
-        plugin.getServer().getPluginManager().registerEvents(new PrepareCraftListener(this), plugin);
+        plugin.getServer().getPluginManager().registerEvents(new PrepareCraftListener(this, this.recipes), plugin);
+        plugin.getServer().getPluginManager().registerEvents(new HookListener(plugin), plugin);
+        plugin.getServer().getPluginManager().registerEvents(new TagListener(this.recipes), plugin);
 
         if(this.debug) {
             Hook.HOOKS.stream()
-                    .filter(Hook::isEnable)
+                    .filter(hook -> Hook.getEnabledHook(hook.getPluginName()) != null)
                     .forEach(hook -> this.plugin.getLogger().info("Hook enabled: " + hook.getPluginName()));
 
             Updater.update("RecipesAPI");
@@ -56,28 +91,193 @@ public final class RecipesAPI {
 
     /**
      * Unregister all the recipes in the list of recipes from the server
+     * The shared ingredients are released too, call it when the plugin is disabled.
      */
     public void unregisterRecipes() {
+        Server server = plugin.getServer();
+        for (ItemRecipe recipe : recipes.clear().getRecipes()) {
+            server.removeRecipe(recipe.getKey(), false);
+        }
+        server.updateRecipes();
+        IngredientInterner.clear();
+    }
+
+    /**
+     * Replace all the recipes by the given ones
+     * The list of recipes is switched in a single atomic step, so readers never see a partial list.
+     * The recipes of the server are then updated: removed recipes are unregistered,
+     * kept recipes are registered again with their new definition.
+     * @param recipes The new recipes, in registration order
+     * @throws IllegalArgumentException if two recipes have the same key; nothing is replaced then
+     */
+    public void replaceRecipes(List<ItemRecipe> recipes) {
+        RecipeSnapshot previous = this.recipes.replace(recipes);
+        RecipeSnapshot current = this.recipes.snapshot();
+        Server server = plugin.getServer();
+        for (NamespacedKey key : previous.getRecipesByKey().keySet()) {
+            server.removeRecipe(key, false);
+            if(this.debug && !current.contains(key)) {
+                plugin.getLogger().info("Unregistering recipe: " + key);
+            }
+        }
         for (ItemRecipe recipe : recipes) {
-            plugin.getServer().removeRecipe(recipe.getKey());
+            this.addToServer(server, recipe);
+            if(this.debug) {
+                plugin.getLogger().info("Registering recipe: " + recipe.getKey());
+            }
+        }
+        server.updateRecipes();
+    }
+
+    /**
+     * Replace all the recipes by the given ones, applying only what changed
+     * The recipes are compared to the registered ones by key and content. On the main thread, a few milliseconds per tick,
+     * removed recipes are unregistered, changed recipes are registered again and added recipes are registered.
+     * Unchanged recipes are left untouched, so they never disappear for the players.
+     * This method can be called from any thread.
+     * @param recipes The new recipes, in registration order
+     * @param tickBudgetMillis The time the changes can take per tick, in milliseconds
+     * @return A future completed on the main thread with the summary of the changes
+     * @throws IllegalArgumentException if two recipes have the same key; nothing is replaced then
+     */
+    public CompletableFuture<ReloadSummary> replaceRecipesAsync(List<ItemRecipe> recipes, long tickBudgetMillis) {
+        return this.replaceRecipesAsync(recipes, tickBudgetMillis, System.nanoTime());
+    }
+
+    /**
+     * Replace all the recipes by the given ones, applying only what changed
+     * @param recipes The new recipes, in registration order
+     * @param tickBudgetMillis The time the changes can take per tick, in milliseconds
+     * @param startNanos The time the reload started, from {@link System#nanoTime()}
+     * @return A future completed on the main thread with the summary of the changes
+     */
+    CompletableFuture<ReloadSummary> replaceRecipesAsync(List<ItemRecipe> recipes, long tickBudgetMillis, long startNanos) {
+        if (tickBudgetMillis < 1) {
+            throw new IllegalArgumentException("The tick budget must be at least 1 ms.");
         }
-        recipes.clear();
+        return this.applyAsync(RecipeDiff.compute(this.recipes.snapshot(), recipes), tickBudgetMillis, startNanos);
+    }
+
+    /**
+     * Replace some of the recipes by the given ones, applying only what changed
+     * Only the registered recipes of the scope can be removed, the others are left untouched.
+     * The given recipes may include unchanged recipes outside the scope: they are not applied again,
+     * but the registry follows their order, so all of them are kept in the global registration order.
+     * @param recipes The new recipes, in registration order
+     * @param scope The keys of the registered recipes replaced by the new recipes
+     * @param tickBudgetMillis The time the changes can take per tick, in milliseconds
+     * @param startNanos The time the reload started, from {@link System#nanoTime()}
+     * @return A future completed on the main thread with the summary of the changes
+     */
+    CompletableFuture<ReloadSummary> replaceRecipesAsync(List<ItemRecipe> recipes, Collection<NamespacedKey> scope,
+                                                         long tickBudgetMillis, long startNanos) {
+        return this.applyAsync(RecipeDiff.compute(this.recipes.snapshot(), recipes, scope), tickBudgetMillis, startNanos);
+    }
+
+    /**
+     * Apply changes to the recipes on the main thread, a few milliseconds per tick
+     * @param diff The changes to apply
+     * @param tickBudgetMillis The time the changes can take per tick, in milliseconds
+     * @param startNanos The time the reload started, from {@link System#nanoTime()}
+     * @return A future completed on the main thread with the summary of the changes
+     */
+    CompletableFuture<ReloadSummary> applyAsync(RecipeDiff diff, long tickBudgetMillis, long startNanos) {
+        if(this.debug) {
+            plugin.getLogger().info("Reloading recipes: " + diff.added().size() + " added, " + diff.changed().size()
+                    + " changed, " + diff.removed().size() + " removed, " + diff.unchanged() + " unchanged.");
+        }
+        if (diff.isEmpty()) {
+            long durationMillis = (System.nanoTime() - startNanos) / 1_000_000L;
+            return CompletableFuture.completedFuture(new ReloadSummary(0, 0, 0, diff.unchanged(), 0, durationMillis));
+        }
+        CompletableFuture<ReloadSummary> scheduled = new CompletableFuture<>();
+        // The task must be scheduled from the main thread to start on the next tick.
+        plugin.getServer().getScheduler().runTask(plugin, () ->
+                new RecipeDiffTask(plugin, this.recipes, diff, tickBudgetMillis, startNanos).start()
+                        .whenComplete((summary, error) -> {
+                            if (error != null) {
+                                scheduled.completeExceptionally(error);
+                            } else {
+                                scheduled.complete(summary);
+                            }
+                        }));
+        return scheduled;
     }
 
     /**
      * Add a recipe to the list of recipes
+     * The recipe is published to the listeners with the other single changes on their next read,
+     * but each call sends the recipes to the players: use {@link #addRecipes(Collection)} to add many recipes at once.
      * @param recipe The recipe to add
      */
     public void addRecipe(ItemRecipe recipe) {
-        if (recipes.stream().anyMatch(r -> r.getKey().equals(recipe.getKey()))) {
+        NamespacedKey key = recipe.getKey();
+        if (!this.recipes.register(key, recipe)) {
             throw new IllegalArgumentException("Recipe already registered");
         }
-        this.recipes.add(recipe);
-        if(plugin.getServer().getRecipe(recipe.getKey()) == null) {
+        if(plugin.getServer().getRecipe(key) == null) {
             plugin.getServer().addRecipe(recipe.toBukkitRecipe());
         }
         if(this.debug) {
-            plugin.getLogger().info("Registering recipe: " + recipe.getKey());
+            plugin.getLogger().info("Registering recipe: " + key);
+        }
+    }
+
+    /**
+     * Add several recipes to the list of recipes
+     * The keys are checked in a single pass before anything is registered, and the recipes are sent
+     * to the players once at the end instead of after each recipe.
+     * @param recipes The recipes to add, in registration order
+     * @throws IllegalArgumentException if a recipe is already registered or two recipes have the same key;
+     *                                  nothing is added then
+     */
+    public void addRecipes(Collection<ItemRecipe> recipes) {
+        this.recipes.registerAll(recipes);
+        Server server = plugin.getServer();
+        for (ItemRecipe recipe : recipes) {
+            this.addToServer(server, recipe);
+            if(this.debug) {
+                plugin.getLogger().info("Registering recipe: " + recipe.getKey());
+            }
+        }
+        server.updateRecipes();
+    }
+
+    /**
+     * Remove several recipes from the list of recipes
+     * The recipes are sent to the players once at the end instead of after each recipe.
+     * @param recipes The recipes to remove
+     */
+    public void removeRecipes(Collection<ItemRecipe> recipes) {
+        List<NamespacedKey> keys = new ArrayList<>(recipes.size());
+        for (ItemRecipe recipe : recipes) {
+            keys.add(recipe.getKey());
+        }
+        this.recipes.unregisterAll(keys);
+        Server server = plugin.getServer();
+        for (NamespacedKey key : keys) {
+            server.removeRecipe(key, false);
+            if(this.debug) {
+                plugin.getLogger().info("Unregistering recipe: " + key);
+            }
+        }
+        server.updateRecipes();
+    }
+
+    /**
+     * Register a recipe on the server without sending it to the players
+     * A recipe already known by the server under the same key is kept, as when the plugin is reloaded.
+     * The server is only queried when the registration fails.
+     * @param server The server
+     * @param recipe The recipe to register
+     */
+    private void addToServer(Server server, ItemRecipe recipe) {
+        try {
+            server.addRecipe(recipe.toBukkitRecipe(), false);
+        } catch (IllegalStateException exception) {
+            if (server.getRecipe(recipe.getKey()) == null) {
+                throw exception;
+            }
         }
     }
 
@@ -86,19 +286,38 @@ public final class RecipesAPI {
      * @param recipe The recipe to remove
      */
     public void removeRecipe(ItemRecipe recipe) {
-        plugin.getServer().removeRecipe(recipe.getKey());
-        this.recipes.remove(recipe);
+        NamespacedKey key = recipe.getKey();
+        plugin.getServer().removeRecipe(key);
+        this.recipes.unregister(key);
         if(this.debug) {
-            plugin.getLogger().info("Unregistering recipe: " + recipe.getKey());
+            plugin.getLogger().info("Unregistering recipe: " + key);
         }
     }
 
     /**
      * Get the list of recipes
-     * @return The list of recipes
+     * @return A read-only list of the recipes, in registration order
      */
     public List<ItemRecipe> getRecipes() {
-        return recipes;
+        return recipes.getRecipes();
+    }
+
+    /**
+     * Get the recipes of a type
+     * @param type The type of the recipes
+     * @return A read-only view of the recipes of this type
+     */
+    public Collection<ItemRecipe> getRecipes(RecipeType type) {
+        return recipes.getRecipes(type);
+    }
+
+    /**
+     * Get a recipe by its key
+     * @param key The key of the recipe
+     * @return The recipe, or null if no recipe is registered under this key
+     */
+    public ItemRecipe getRecipe(NamespacedKey key) {
+        return recipes.get(key);
     }
 
     /**
@@ -123,12 +342,59 @@ public final class RecipesAPI {
      * @param args The arguments to format the message
      */
     public void debug(String message, Object... args) {
-        String formattedMessage = String.format(message, args);
         if (debug) {
-            this.plugin.getLogger().info(formattedMessage);
+            this.plugin.getLogger().info(String.format(message, args));
+        }
+    }
+
+    /**
+     * Log a debug message built only if the debug mode is enabled
+     * @param message The supplier of the message to log
+     */
+    public void debug(Supplier<String> message) {
+        if (debug) {
+            this.plugin.getLogger().info(message.get());
         }
     }
 
+    /**
+     * Get the tracer of the match decisions
+     * The tracer is enabled with the debug mode and can be toggled at runtime.
+     * @return The tracer
+     */
+    public RecipeTracer getTracer() {
+        return tracer;
+    }
+
+    /**
+     * Get the matcher of the recipes
+     * It finds and checks the recipes from items, without inventory nor event, from any thread.
+     * @return The matcher
+     */
+    public RecipeMatcher getMatcher() {
+        return matcher;
+    }
+
+    /**
+     * Log the match decisions recorded by the tracer, oldest first
+     */
+    public void dumpTrace() {
+        List<TraceEvent> events = this.tracer.snapshot();
+        this.plugin.getLogger().info("Last " + events.size() + " match decisions:");
+        for (TraceEvent event : events) {
+            this.plugin.getLogger().info(event.toString());
+        }
+    }
+
+    /**
+     * Estimate the heap retained by the registered recipes
+     * Walks every recipe, call it on demand rather than periodically.
+     * @return The memory report, per recipe and per ingredient type
+     */
+    public MemoryReport memoryReport() {
+        return MemoryEstimator.report(this.recipes.getRecipes());
+    }
+
     /**
      * Create a new RecipeLoader instance for custom recipe loading
      * @return A new RecipeLoader instance
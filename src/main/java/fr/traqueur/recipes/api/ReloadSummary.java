@@ -0,0 +1,19 @@
+package fr.traqueur.recipes.api;
+
+/**
+ * This record represents the outcome of an asynchronous reload of the recipes.
+ * @param added the number of recipes registered for the first time
+ * @param changed the number of recipes registered again with a new content
+ * @param removed the number of recipes unregistered
+ * @param unchanged the number of recipes left untouched
+ * @param ticks the number of server ticks used to apply the changes
+ * @param durationMillis the time between the start of the reload and its end, in milliseconds
+ */
+public record ReloadSummary(int added, int changed, int removed, int unchanged, int ticks, long durationMillis) {
+
+    @Override
+    public String toString() {
+        return added + " added, " + changed + " changed, " + removed + " removed, " + unchanged + " unchanged"
+                + " (" + ticks + " ticks, " + durationMillis + " ms)";
+    }
+}
@@ -2,6 +2,8 @@ package fr.traqueur.recipes.api;
 
 import fr.traqueur.recipes.api.domains.Ingredient;
 import fr.traqueur.recipes.api.hook.Hook;
+import fr.traqueur.recipes.impl.codec.ItemStackCodec;
+import fr.traqueur.recipes.impl.domains.ingredients.IngredientInterner;
 import fr.traqueur.recipes.impl.domains.ingredients.ItemStackIngredient;
 import fr.traqueur.recipes.impl.domains.ingredients.MaterialIngredient;
 import fr.traqueur.recipes.impl.domains.ingredients.StrictItemStackIngredient;
@@ -38,23 +40,42 @@ public class Util {
      */
     public static ItemStack getItemStack(String base64itemstack) {
         try {
-            ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(Base64.getDecoder().decode(base64itemstack));
-            GZIPInputStream gzipInputStream = new GZIPInputStream(byteArrayInputStream);
-            ObjectInputStream objectInputStream = new BukkitObjectInputStream(gzipInputStream);
-            Object deserialized = objectInputStream.readObject();
-            objectInputStream.close();
+            return readItemStack(Base64.getDecoder().decode(base64itemstack));
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException("The itemstack " + base64itemstack + " is not valid: " + exception.getMessage());
+        }
+    }
 
+    /**
+     * This method is used to get the itemstack from the decoded bytes of a base64 string.
+     * @param serialized the bytes of the item stack, without their base64.
+     * @return the item stack.
+     */
+    public static ItemStack getItemStack(byte[] serialized) {
+        try {
+            return readItemStack(serialized);
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException("The itemstack is not valid: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Read an item stack serialized by {@link #fromItemStack(ItemStack)}.
+     * @param serialized the bytes of the item stack, without their base64.
+     * @return the item stack.
+     * @throws IllegalArgumentException if the bytes are not a serialized item stack
+     */
+    private static ItemStack readItemStack(byte[] serialized) {
+        try (ObjectInputStream objectInputStream = new BukkitObjectInputStream(new GZIPInputStream(new ByteArrayInputStream(serialized)))) {
+            Object deserialized = objectInputStream.readObject();
             if (!(deserialized instanceof ItemStack)) {
                 throw new IllegalArgumentException("The deserialized object is not an ItemStack.");
             }
-
             return (ItemStack) deserialized;
         } catch (IOException exception) {
-            throw new IllegalArgumentException("The itemstack " + base64itemstack + " is not a valid base64 or corrupted: " + exception.getMessage());
+            throw new IllegalArgumentException("not a valid base64 or corrupted: " + exception.getMessage());
         } catch (ClassNotFoundException exception) {
-            throw new IllegalArgumentException("The itemstack " + base64itemstack + " contains an unknown class: " + exception.getMessage());
-        } catch (IllegalArgumentException exception) {
-            throw new IllegalArgumentException("The itemstack " + base64itemstack + " is not valid: " + exception.getMessage());
+            throw new IllegalArgumentException("contains an unknown class: " + exception.getMessage());
         }
     }
 
@@ -76,6 +97,46 @@ public class Util {
         }
     }
 
+    /**
+     * This method is used to get the itemstack from a compact string, as written by {@link #fromItemStackCompact(ItemStack)}.
+     * @param compactItemStack the compact item stack, without its prefix.
+     * @return the item stack.
+     */
+    public static ItemStack getCompactItemStack(String compactItemStack) {
+        try {
+            return ItemStackCodec.decode(compactItemStack);
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException("The itemstack " + compactItemStack + " is not valid: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * This method is used to get the itemstack from the decoded bytes of a compact string.
+     * @param compactItemStack the bytes of the compact item stack, without their base64.
+     * @return the item stack.
+     */
+    public static ItemStack getCompactItemStack(byte[] compactItemStack) {
+        try {
+            return ItemStackCodec.decode(compactItemStack);
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException("The itemstack is not valid: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * This method is used to convert an itemstack to a compact string, used with the {@code bin1:} prefix.
+     * It is smaller and faster to decode than the base64 string of {@link #fromItemStack(ItemStack)}.
+     * @param itemStack the item stack.
+     * @return the compact string.
+     */
+    public static String fromItemStackCompact(ItemStack itemStack) {
+        try {
+            return ItemStackCodec.encode(itemStack);
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException("The itemstack " + itemStack + " cannot be serialized: " + exception.getMessage());
+        }
+    }
+
     /**
      * This method is used to get the material from the string.
      * @param material the material string.
@@ -91,13 +152,41 @@ public class Util {
 
     /**
      * Parse an ingredient from a string.
-     * @param itemString The string representation of the ingredient (e.g., "COBBLESTONE", "material:STONE", "item:DIAMOND", "base64:xxx", "tag:planks", "plugin:custom_item")
+     * @param itemString The string representation of the ingredient (e.g., "COBBLESTONE", "material:STONE", "item:DIAMOND", "base64:xxx", "bin1:xxx", "tag:planks", "plugin:custom_item")
      * @param sign The sign of the ingredient (can be null for shapeless recipes)
-     * @param strict Whether the ingredient should use strict matching (only applies to item: and base64: types)
+     * @param strict Whether the ingredient should use strict matching (only applies to item:, base64: and bin1: types)
+     * Identical built-in ingredients are parsed once and shared, see {@link IngredientInterner}.
      * @return The parsed ingredient
      */
     public static Ingredient parseIngredient(String itemString, Character sign, boolean strict) {
         String[] data = itemString.split(":", 2);
+        if (data.length == 2 && isHookPrefix(data[0])) {
+            // Hook ingredients depend on the enabled hooks, they are not shared.
+            return createIngredient(data, sign, strict);
+        }
+        return IngredientInterner.intern(itemString, sign, strict, () -> createIngredient(data, sign, strict));
+    }
+
+    /**
+     * Check if the prefix of an ingredient is provided by a hook.
+     * @param prefix The prefix of the ingredient
+     * @return true if the prefix is not a built-in one
+     */
+    private static boolean isHookPrefix(String prefix) {
+        return switch (prefix) {
+            case "material", "tag", "item", "base64", "bin1" -> false;
+            default -> true;
+        };
+    }
+
+    /**
+     * Create an ingredient from its string representation.
+     * @param data The string representation of the ingredient, split on its prefix
+     * @param sign The sign of the ingredient
+     * @param strict Whether the ingredient should use strict matching
+     * @return The created ingredient
+     */
+    private static Ingredient createIngredient(String[] data, Character sign, boolean strict) {
         if(data.length == 1) {
             return new MaterialIngredient(getMaterial(data[0]), sign);
         } else {
@@ -118,12 +207,19 @@ public class Util {
                     }
                     yield new ItemStackIngredient(getItemStack(data[1]), sign);
                 }
-                default -> Hook.HOOKS.stream()
-                        .filter(Hook::isEnable)
-                        .filter(hook -> hook.getPluginName().equalsIgnoreCase(data[0]))
-                        .findFirst()
-                        .orElseThrow(() -> new IllegalArgumentException("The data " + data[0] + " isn't valid."))
-                        .getIngredient(data[1], sign);
+                case "bin1" -> {
+                    if(strict) {
+                        yield new StrictItemStackIngredient(getCompactItemStack(data[1]), sign);
+                    }
+                    yield new ItemStackIngredient(getCompactItemStack(data[1]), sign);
+                }
+                default -> {
+                    Hook hook = Hook.getEnabledHook(data[0]);
+                    if (hook == null) {
+                        throw new IllegalArgumentException("The data " + data[0] + " isn't valid.");
+                    }
+                    yield hook.getIngredient(data[1], sign);
+                }
             };
         }
     }
@@ -1,6 +1,7 @@
 package fr.traqueur.recipes.api.domains;
 
 import fr.traqueur.recipes.api.hook.Hook;
+import fr.traqueur.recipes.impl.debug.MemoryEstimator;
 import fr.traqueur.recipes.impl.domains.ingredients.ItemStackIngredient;
 import fr.traqueur.recipes.impl.domains.ingredients.MaterialIngredient;
 import fr.traqueur.recipes.impl.domains.ingredients.StrictItemStackIngredient;
@@ -12,6 +13,7 @@ import org.bukkit.inventory.RecipeChoice;
 
 /**
  * Base class for ingredients.
+ * Ingredients are compared by value, sign included, so they can be shared and used as keys.
  */
 public abstract class Ingredient {
 
@@ -50,6 +52,26 @@ public abstract class Ingredient {
      */
     public abstract RecipeChoice choice();
 
+    /**
+     * Check if the choice of the ingredient is enough to validate an item.
+     * When every ingredient of a recipe is vanilla-exact, the server matches the recipe itself
+     * and the API does not validate it again.
+     * @return true if an item accepted by the choice is always similar to the ingredient, false otherwise.
+     */
+    public boolean isVanillaExact() {
+        return false;
+    }
+
+    /**
+     * Estimate the heap retained by the ingredient, for the memory report.
+     * Objects shared with other ingredients or recipes are counted through the estimator, which counts them once.
+     * @param estimator The estimator of the memory report.
+     * @return The estimated number of bytes.
+     */
+    public long estimateSize(MemoryEstimator estimator) {
+        return estimator.object(2, 0);
+    }
+
     // ── Factory methods ────────────────────────────────────────────────────────
 
     /** Create a material-based ingredient (matches any item of that type). */
@@ -115,11 +137,10 @@ public abstract class Ingredient {
      * @param sign       the shaped-recipe sign, or {@code null} for shapeless
      */
     public static Ingredient ofHook(String pluginName, String itemId, Character sign) {
-        return Hook.HOOKS.stream()
-                .filter(Hook::isEnable)
-                .filter(h -> h.getPluginName().equalsIgnoreCase(pluginName))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("No enabled hook found for plugin: " + pluginName))
-                .getIngredient(itemId, sign);
+        Hook hook = Hook.getEnabledHook(pluginName);
+        if (hook == null) {
+            throw new IllegalArgumentException("No enabled hook found for plugin: " + pluginName);
+        }
+        return hook.getIngredient(itemId, sign);
     }
 }
@@ -155,7 +155,7 @@ public interface Recipe {
      * Add an ingredient parsed from a string identifier.
      * Supports the same formats as YAML config:
      * {@code "MATERIAL"}, {@code "material:NAME"}, {@code "item:NAME"},
-     * {@code "base64:XXX"}, {@code "tag:NAME"}, {@code "oraxen:id"}, {@code "itemsadder:id"}, etc.
+     * {@code "base64:XXX"}, {@code "bin1:XXX"}, {@code "tag:NAME"}, {@code "oraxen:id"}, {@code "itemsadder:id"}, etc.
      * @param itemIdentifier the string identifier
      * @return The recipe.
      */
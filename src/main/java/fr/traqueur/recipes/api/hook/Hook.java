@@ -1,13 +1,12 @@
 package fr.traqueur.recipes.api.hook;
 
 import fr.traqueur.recipes.api.domains.Ingredient;
-import fr.traqueur.recipes.impl.hook.Hooks;
+import fr.traqueur.recipes.impl.hook.HookRegistry;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -17,15 +16,26 @@ public interface Hook {
 
     /**
      * The list of hooks
+     * Adding a hook to this list registers it like {@link #addHook(Hook)}, removing a hook unregisters it.
      */
-    List<Hook> HOOKS = new ArrayList<>(List.of(Hooks.values()));
+    List<Hook> HOOKS = HookRegistry.getHooks();
 
     /**
      * Add a new hook
+     * A hook registered for the same plugin name is replaced.
      * @param hook The hook to add
      */
     static void addHook(Hook hook) {
-        HOOKS.add(hook);
+        HookRegistry.register(hook);
+    }
+
+    /**
+     * Get the enabled hook of a plugin
+     * @param pluginName The name of the plugin (case-insensitive)
+     * @return The hook, or null if no hook is registered for this plugin or if it is disabled
+     */
+    static Hook getEnabledHook(String pluginName) {
+        return HookRegistry.getEnabled(pluginName);
     }
 
     /**
@@ -44,6 +54,7 @@ public interface Hook {
 
     /**
      * Check if the plugin is enabled
+     * The result is cached by the API until a plugin is enabled or disabled.
      * @return If the plugin is enabled
      */
     default boolean isEnable() {
@@ -1,28 +1,27 @@
 package fr.traqueur.recipes.impl;
 
+import fr.traqueur.recipes.api.RecipeMatcher;
 import fr.traqueur.recipes.api.RecipeType;
 import fr.traqueur.recipes.api.RecipesAPI;
-import fr.traqueur.recipes.api.domains.Ingredient;
+import fr.traqueur.recipes.impl.debug.RecipeTracer;
+import fr.traqueur.recipes.impl.debug.TraceReason;
 import fr.traqueur.recipes.impl.domains.ItemRecipe;
+import fr.traqueur.recipes.impl.matcher.SmithingMatcher;
+import fr.traqueur.recipes.impl.registry.RecipeRegistry;
+import fr.traqueur.recipes.impl.registry.RecipeSnapshot;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockCookEvent;
-import org.bukkit.event.inventory.FurnaceSmeltEvent;
 import org.bukkit.event.inventory.PrepareItemCraftEvent;
 import org.bukkit.event.inventory.PrepareSmithingEvent;
 import org.bukkit.inventory.*;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Objects;
-import java.util.concurrent.atomic.AtomicBoolean;
-
 /**
  * This class is used to listen to events that are related to the api.
+ * The items are checked against the recipes by the {@link RecipeMatcher} of the API.
  */
 public class PrepareCraftListener implements Listener {
 
@@ -31,32 +30,52 @@ public class PrepareCraftListener implements Listener {
      */
     private final RecipesAPI api;
 
+    /**
+     * The registry of the recipes of the API.
+     */
+    private final RecipeRegistry registry;
+
+    /**
+     * The tracer of the match decisions.
+     */
+    private final RecipeTracer tracer;
+
+    /**
+     * The matcher deciding if the items match a recipe.
+     */
+    private final RecipeMatcher matcher;
+
     /**
      * Creates a new PrepareCraftListener instance.
      * @param api the API instance
+     * @param registry the registry of the recipes of the API
      */
-    public PrepareCraftListener(RecipesAPI api) {
+    public PrepareCraftListener(RecipesAPI api, RecipeRegistry registry) {
         this.api = api;
+        this.registry = registry;
+        this.tracer = api.getTracer();
+        this.matcher = api.getMatcher();
     }
 
     /**
-     * Get the recipes for an item.
-     * @param item the item
-     * @param recipeType the recipe type
+     * Get the type of the recipes cooked by a block.
+     * @param block the material of the block
+     * @return the recipe type, or null if the block doesn't cook
      */
-    private <T extends Recipe> List<T> getRecipeFor(ItemStack item, Class<T> recipeType) {
-        List<T> recipes = new ArrayList<>();
-        for (Recipe recipe : api.getPlugin().getServer().getRecipesFor(item)) {
-            if (recipeType.isInstance(recipe)) {
-                recipes.add(recipeType.cast(recipe));
-            }
-        }
-        return recipes;
+    private RecipeType getCookingType(Material block) {
+        return switch (block) {
+            case FURNACE -> RecipeType.SMELTING;
+            case BLAST_FURNACE -> RecipeType.BLASTING;
+            case SMOKER -> RecipeType.SMOKING;
+            case CAMPFIRE, SOUL_CAMPFIRE -> RecipeType.CAMPFIRE_COOKING;
+            default -> null;
+        };
     }
 
-
     /**
      * This method is called when a block is smelted.
+     * The recipe used by the block is resolved by a single key lookup:
+     * recipes that are not ours are left to the server, even when they cook the same source.
      * @param event the event
      */
     @EventHandler
@@ -65,92 +84,65 @@ public class PrepareCraftListener implements Listener {
             return;
         }
 
+        CookingRecipe<?> recipe = event.getRecipe();
+        if (recipe == null) return;
+        ItemRecipe itemRecipe = this.registry.snapshot().get(recipe.getKey());
+        if (itemRecipe == null || itemRecipe.recipeType() != this.getCookingType(event.getBlock().getType())) return;
+
         ItemStack item = event.getSource();
         if (item == null || item.getType() == Material.AIR) return;
-        ItemStack result = event.getResult();
-        var recipes = getRecipeFor(result, FurnaceRecipe.class);
 
-        List<ItemRecipe> itemRecipes = api.getRecipes().stream()
-                .filter(itemRecipe ->  RecipeType.smeltingRecipes().contains(itemRecipe.recipeType()))
-                .toList();
-
-        for (ItemRecipe itemRecipe : itemRecipes) {
-            recipes.stream()
-                    .filter(recipe -> recipe.getKey().equals(itemRecipe.getKey()))
-                    .findFirst()
-                    .ifPresent(recipe -> {
-                if(!isSimilar(item, itemRecipe.ingredients()[0])) {
-                    this.api.debug("The smelting recipe %s is not good.", itemRecipe.getKey());
-                    event.setCancelled(true);
-                } else {
-                    this.api.debug("The smelting recipe %s is good.", itemRecipe.getKey());
-                    event.setResult(itemRecipe.toBukkitItemStack(null));
-                }
-            });
+        if (!this.matcher.matches(itemRecipe, item)) {
+            this.tracer.record(itemRecipe.getKey(), 0, TraceReason.INGREDIENT_MISMATCH);
+            event.setCancelled(true);
+            return;
+        }
+        if (itemRecipe.vanillaExact()) {
+            // The server already produced the result of this recipe.
+            this.tracer.record(itemRecipe.getKey(), 0, TraceReason.VANILLA_EXACT);
+            return;
         }
+        this.tracer.record(itemRecipe.getKey(), 0, TraceReason.MATCHED);
+        event.setResult(itemRecipe.toBukkitItemStack(null));
     }
 
     /**
      * This method is called when a smithing transformation is prepared.
+     * Recipes that are not ours, trims included, are rejected by a single key lookup
+     * before any slot is read.
      * @param event the event
      */
     @EventHandler
     public void onSmithingTransform(PrepareSmithingEvent event) {
-        if(event.getInventory().getRecipe() == null) {
+        SmithingInventory inventory = event.getInventory();
+        if(!(inventory.getRecipe() instanceof SmithingTransformRecipe recipe)) {
             return;
         }
-        SmithingRecipe recipe =  (SmithingRecipe) event.getInventory().getRecipe();
-
-        ItemStack item = event.getResult();
-        if (item == null || item.getType() == Material.AIR) return;
 
-        ItemStack template = event.getInventory().getItem(0);
-        ItemStack base = event.getInventory().getItem(1);
-        ItemStack addition = event.getInventory().getItem(2);
-
-        if(recipe instanceof SmithingTrimRecipe) {
+        ItemRecipe itemRecipe = this.registry.snapshot().get(recipe.getKey());
+        if (itemRecipe == null || itemRecipe.recipeType() != RecipeType.SMITHING_TRANSFORM || itemRecipe.vanillaExact()) {
             return;
         }
 
+        ItemStack item = event.getResult();
+        if (item == null || item.getType() == Material.AIR) return;
 
-        List<ItemRecipe> itemRecipes = api.getRecipes().stream()
-                .filter(itemRecipe -> itemRecipe.recipeType() == RecipeType.SMITHING_TRANSFORM)
-                .toList();
-        for (ItemRecipe itemRecipe : itemRecipes) {
-            if (!itemRecipe.getKey()
-                    .equals(recipe.getKey()))
-                continue;
-            this.api.debug("The recipe %s is a smithing recipe.", itemRecipe.getKey());
-            Ingredient templateIngredient = itemRecipe.ingredients()[0];
-            Ingredient baseIngredient = itemRecipe.ingredients()[1];
-            Ingredient additionIngredient = itemRecipe.ingredients()[2];
-
-            boolean isSimilar = isSimilar(template, templateIngredient)
-                    && isSimilar(base, baseIngredient)
-                    && isSimilar(addition, additionIngredient);
-
-            if(!isSimilar) {
-                this.api.debug("The smithing recipe %s is not good.", itemRecipe.getKey());
-                event.setResult(new ItemStack(Material.AIR));
-                return;
+        if(!this.matcher.matches(itemRecipe, inventory.getItem(0), inventory.getItem(1), inventory.getItem(2))) {
+            if (this.tracer.isEnabled()) {
+                SmithingMatcher matcher = itemRecipe.smithingMatcher();
+                int slot = matcher == null ? -1 : matcher.mismatch(inventory.getItem(0), inventory.getItem(1), inventory.getItem(2));
+                this.tracer.record(itemRecipe.getKey(), slot, TraceReason.INGREDIENT_MISMATCH);
             }
-            this.api.debug("The smithing recipe %s is good.", itemRecipe.getKey());
-            event.setResult(itemRecipe.toBukkitItemStack((Player) event.getViewers().getFirst()));
+            event.setResult(null);
+            return;
         }
-    }
-
-    /**
-     * Check if an item is similar to an ingredient.
-     * @param item the item
-     * @param itemIngredient the ingredient
-     * @return true if the item is similar to the ingredient, false otherwise
-     */
-    private boolean isSimilar(ItemStack item, Ingredient itemIngredient) {
-        return itemIngredient.isSimilar(item);
+        this.tracer.record(itemRecipe.getKey(), -1, TraceReason.MATCHED);
+        event.setResult(itemRecipe.toBukkitItemStack((Player) event.getViewers().getFirst()));
     }
 
     /**
      * This method is called when an item is prepared to be crafted.
+     * Vanilla-exact recipes are left to the server.
      * @param event the event
      */
     @EventHandler(priority = EventPriority.HIGHEST)
@@ -159,22 +151,27 @@ public class PrepareCraftListener implements Listener {
         if (recipe == null) return;
 
         Player player = (Player) event.getViewers().getFirst();
+        RecipeSnapshot snapshot = this.registry.snapshot();
 
-        var itemRecipes = api.getRecipes().stream()
-                .filter(itemRecipe -> itemRecipe.recipeType() == RecipeType.CRAFTING_SHAPED || itemRecipe.recipeType() == RecipeType.CRAFTING_SHAPELESS)
-                .toList();
-
-        for (ItemRecipe itemRecipe : itemRecipes) {
-            if(recipe instanceof ShapedRecipe shapedRecipe && itemRecipe.recipeType() == RecipeType.CRAFTING_SHAPED) {
-                if (!shapedRecipe.getKey().equals(itemRecipe.getKey())) continue;
-                this.api.debug("The recipe %s is a shaped recipe.", itemRecipe.getKey());
+        if(recipe instanceof ShapedRecipe shapedRecipe) {
+            ItemRecipe itemRecipe = snapshot.get(shapedRecipe.getKey());
+            if (itemRecipe != null && itemRecipe.recipeType() == RecipeType.CRAFTING_SHAPED) {
+                if (itemRecipe.vanillaExact()) {
+                    this.tracer.record(itemRecipe.getKey(), -1, TraceReason.VANILLA_EXACT);
+                    return;
+                }
                 this.checkGoodShapedRecipe(player, itemRecipe, event);
                 return;
             }
+        }
 
-            if(recipe instanceof ShapelessRecipe shapelessRecipe && itemRecipe.recipeType() == RecipeType.CRAFTING_SHAPELESS) {
-                if(!shapelessRecipe.getKey().equals(itemRecipe.getKey())) continue;
-                this.api.debug("The recipe %s is a shapeless recipe.", itemRecipe.getKey());
+        if(recipe instanceof ShapelessRecipe shapelessRecipe) {
+            ItemRecipe itemRecipe = snapshot.get(shapelessRecipe.getKey());
+            if (itemRecipe != null && itemRecipe.recipeType() == RecipeType.CRAFTING_SHAPELESS) {
+                if (itemRecipe.vanillaExact()) {
+                    this.tracer.record(itemRecipe.getKey(), -1, TraceReason.VANILLA_EXACT);
+                    return;
+                }
                 this.checkGoodShapelessRecipe(player, itemRecipe, event);
                 return;
             }
@@ -183,13 +180,10 @@ public class PrepareCraftListener implements Listener {
         // No key match found: another plugin's recipe was selected by Bukkit (e.g. Oraxen/ItemsAdder
         // registered a recipe with the same material). Try matching our shapeless recipes by content.
         if (recipe instanceof ShapelessRecipe) {
-            for (ItemRecipe itemRecipe : itemRecipes) {
-                if (itemRecipe.recipeType() != RecipeType.CRAFTING_SHAPELESS) continue;
-                if (this.matchesShapelessContent(itemRecipe, event)) {
-                    this.api.debug("The shapeless recipe %s matched by content (key override).", itemRecipe.getKey());
-                    event.getInventory().setResult(itemRecipe.toBukkitItemStack(player));
-                    return;
-                }
+            ItemRecipe itemRecipe = this.matcher.find(RecipeType.CRAFTING_SHAPELESS, event.getInventory().getMatrix());
+            if (itemRecipe != null) {
+                this.tracer.record(itemRecipe.getKey(), -1, TraceReason.CONTENT_MATCHED);
+                event.getInventory().setResult(itemRecipe.toBukkitItemStack(player));
             }
         }
     }
@@ -200,42 +194,13 @@ public class PrepareCraftListener implements Listener {
      * @param event the event
      */
     private void checkGoodShapedRecipe(Player player, ItemRecipe itemRecipe, PrepareItemCraftEvent event) {
-        ItemStack[] matrix = event.getInventory().getMatrix();
-        String[] pattern = Arrays.stream(itemRecipe.pattern()).map(s -> s.split("")).flatMap(Arrays::stream).toArray(String[]::new);
-
-        for (int i = 0; i < matrix.length && i < pattern.length; i++) {
-            ItemStack stack = matrix[i];
-            char sign = pattern[i].charAt(0);
-
-            // Si le pattern indique un espace (air), vérifier que l'item est null ou AIR
-            if (sign == ' ') {
-                if (stack != null && stack.getType() != Material.AIR) {
-                    this.api.debug("The shaped recipe %s is not good - expected air at position %d.", itemRecipe.getKey(), i);
-                    event.getInventory().setResult(new ItemStack(Material.AIR));
-                    return;
-                }
-                continue;
-            }
-
-            // Si l'item est null ou AIR mais que le pattern attend un ingrédient
-            if (stack == null || stack.getType() == Material.AIR) {
-                this.api.debug("The shaped recipe %s is not good - missing ingredient at position %d.", itemRecipe.getKey(), i);
-                event.getInventory().setResult(new ItemStack(Material.AIR));
-                return;
-            }
-
-            AtomicBoolean isSimilar = new AtomicBoolean(false);
-            Arrays.stream(itemRecipe.ingredients()).filter(ingredient -> ingredient.sign() == sign).findFirst().ifPresent(ingredient -> {
-                isSimilar.set(ingredient.isSimilar(stack));
-            });
-            if(!isSimilar.get()) {
-                this.api.debug("The shaped recipe %s is not good - ingredient mismatch at position %d.", itemRecipe.getKey(), i);
-                event.getInventory().setResult(new ItemStack(Material.AIR));
-                return;
-            }
+        if (!this.matcher.matches(itemRecipe, event.getInventory().getMatrix())) {
+            this.tracer.record(itemRecipe.getKey(), -1, TraceReason.PATTERN_MISMATCH);
+            event.getInventory().setResult(null);
+            return;
         }
 
-        this.api.debug("The shaped recipe %s is good.", itemRecipe.getKey());
+        this.tracer.record(itemRecipe.getKey(), -1, TraceReason.MATCHED);
         event.getInventory().setResult(itemRecipe.toBukkitItemStack(player));
     }
 
@@ -247,50 +212,12 @@ public class PrepareCraftListener implements Listener {
      * @param event the event
      */
     private void checkGoodShapelessRecipe(Player player, ItemRecipe itemRecipe, PrepareItemCraftEvent event) {
-        if (matchesShapelessContent(itemRecipe, event)) {
-            this.api.debug("The shapeless recipe %s is good.", itemRecipe.getKey());
+        if (this.matcher.matches(itemRecipe, event.getInventory().getMatrix())) {
+            this.tracer.record(itemRecipe.getKey(), -1, TraceReason.MATCHED);
             event.getInventory().setResult(itemRecipe.toBukkitItemStack(player));
         } else {
-            this.api.debug("The shapeless recipe %s is not good.", itemRecipe.getKey());
-            event.getInventory().setResult(new ItemStack(Material.AIR));
-        }
-    }
-
-    /**
-     * Check if the current crafting grid matches a shapeless recipe by ingredient content.
-     * Does not modify the event result.
-     * @param itemRecipe the item recipe to test
-     * @param event the crafting event
-     * @return true if all ingredients are satisfied
-     */
-    private boolean matchesShapelessContent(ItemRecipe itemRecipe, PrepareItemCraftEvent event) {
-        List<ItemStack> matrix = new ArrayList<>(Arrays.stream(event.getInventory().getMatrix())
-                .filter(Objects::nonNull)
-                .filter(it -> it.getType() != Material.AIR)
-                .toList());
-        Ingredient[] itemIngredients = itemRecipe.ingredients();
-
-        if (matrix.size() != itemIngredients.length) {
-            this.api.debug("The shapeless recipe %s is not good - wrong number of items (%d vs %d).",
-                    itemRecipe.getKey(), matrix.size(), itemIngredients.length);
-            return false;
-        }
-
-        for (Ingredient ingredient : itemIngredients) {
-            boolean found = false;
-            for (int i = 0; i < matrix.size(); i++) {
-                if (ingredient.isSimilar(matrix.get(i))) {
-                    this.api.debug("Ingredient %s found in the matrix.", ingredient);
-                    matrix.remove(i);
-                    found = true;
-                    break;
-                }
-            }
-            if (!found) {
-                this.api.debug("Ingredient %s not found in the matrix.", ingredient);
-                return false;
-            }
+            this.tracer.record(itemRecipe.getKey(), -1, TraceReason.INGREDIENT_MISMATCH);
+            event.getInventory().setResult(null);
         }
-        return true;
     }
 }
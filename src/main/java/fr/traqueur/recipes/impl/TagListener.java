@@ -0,0 +1,38 @@
+package fr.traqueur.recipes.impl;
+
+import fr.traqueur.recipes.impl.domains.ingredients.TagIngredient;
+import fr.traqueur.recipes.impl.registry.RecipeRegistry;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.ServerLoadEvent;
+
+/**
+ * This class is used to refresh the tag ingredients when the server reloads its data.
+ * The recipes and indexes of the registry are rebuilt with the new members of the tags.
+ */
+public class TagListener implements Listener {
+
+    /**
+     * The registry of the recipes to rebuild.
+     */
+    private final RecipeRegistry registry;
+
+    /**
+     * Creates a new TagListener instance.
+     * @param registry the registry of the recipes to rebuild
+     */
+    public TagListener(RecipeRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * This method is called when the server has loaded or reloaded.
+     * @param event the event
+     */
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onServerLoad(ServerLoadEvent event) {
+        TagIngredient.refreshAll();
+        this.registry.refreshTags();
+    }
+}
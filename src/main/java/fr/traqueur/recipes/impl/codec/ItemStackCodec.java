@@ -0,0 +1,430 @@
+package fr.traqueur.recipes.impl.codec;
+
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.BufferUnderflowException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class encodes item stacks in a compact binary form, written as an URL-safe Base64 string.
+ * The item is described by {@link ItemStack#serialize()}, as in a YAML configuration,
+ * and each value is written as a one-byte tag followed by its content.
+ * Integers and lengths are variable-length, and a repeated string is written as a reference to its first occurrence.
+ * No Java serialization nor compression is involved, so small items stay small and are fast to decode.
+ */
+public final class ItemStackCodec {
+
+    /**
+     * The null value.
+     */
+    private static final byte NULL = 0;
+
+    /**
+     * A string, followed by its length and its UTF-8 bytes.
+     */
+    private static final byte STRING = 1;
+
+    /**
+     * A string already written, followed by its index.
+     */
+    private static final byte STRING_REF = 2;
+
+    /**
+     * An integer, zigzag variable-length.
+     */
+    private static final byte INT = 3;
+
+    /**
+     * A long, zigzag variable-length.
+     */
+    private static final byte LONG = 4;
+
+    /**
+     * A double.
+     */
+    private static final byte DOUBLE = 5;
+
+    /**
+     * A float.
+     */
+    private static final byte FLOAT = 6;
+
+    /**
+     * The true boolean.
+     */
+    private static final byte TRUE = 7;
+
+    /**
+     * The false boolean.
+     */
+    private static final byte FALSE = 8;
+
+    /**
+     * A short.
+     */
+    private static final byte SHORT = 9;
+
+    /**
+     * A byte.
+     */
+    private static final byte BYTE = 10;
+
+    /**
+     * A list, followed by its size and its elements.
+     */
+    private static final byte LIST = 11;
+
+    /**
+     * A map, followed by its size and its keys and values.
+     */
+    private static final byte MAP = 12;
+
+    /**
+     * A serializable object, followed by its alias and the map of its serialized form.
+     */
+    private static final byte SERIALIZABLE = 13;
+
+    /**
+     * A set, such as the item flags of a meta, followed by its size and its elements.
+     */
+    private static final byte SET = 14;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private ItemStackCodec() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Encode an item stack.
+     * @param itemStack the item stack
+     * @return the encoded item stack
+     * @throws IllegalArgumentException if the item stack holds a value that can't be encoded
+     */
+    public static String encode(ItemStack itemStack) {
+        Writer writer = new Writer();
+        writer.writeMap(itemStack.serialize());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(writer.output.toByteArray());
+    }
+
+    /**
+     * Decode an item stack.
+     * @param data the encoded item stack
+     * @return the item stack
+     * @throws IllegalArgumentException if the data is not a valid encoded item stack
+     */
+    public static ItemStack decode(String data) {
+        return decode(Base64.getUrlDecoder().decode(data));
+    }
+
+    /**
+     * Decode an item stack from its bytes, the encoded item stack without its Base64.
+     * @param data the bytes of the item stack
+     * @return the item stack
+     * @throws IllegalArgumentException if the data is not a valid encoded item stack
+     */
+    public static ItemStack decode(byte[] data) {
+        try {
+            Reader reader = new Reader(ByteBuffer.wrap(data));
+            Map<String, Object> serialized = reader.readMap();
+            if (reader.input.hasRemaining()) {
+                throw new IllegalArgumentException("Unexpected data after the item.");
+            }
+            return ItemStack.deserialize(serialized);
+        } catch (BufferUnderflowException | ClassCastException exception) {
+            throw new IllegalArgumentException("The data is truncated or corrupted.", exception);
+        }
+    }
+
+    /**
+     * The state of an encoding.
+     */
+    private static final class Writer {
+
+        /**
+         * The encoded bytes.
+         */
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream(128);
+
+        /**
+         * The index of each string already written.
+         */
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        /**
+         * Write a value with its tag.
+         * @param value the value
+         */
+        private void writeValue(Object value) {
+            if (value == null) {
+                this.output.write(NULL);
+            } else if (value instanceof String string) {
+                this.writeString(string);
+            } else if (value instanceof Integer integer) {
+                this.output.write(INT);
+                this.writeVarLong(zigzag(integer));
+            } else if (value instanceof Long number) {
+                this.output.write(LONG);
+                this.writeVarLong(zigzag(number));
+            } else if (value instanceof Double number) {
+                this.output.write(DOUBLE);
+                this.writeFixed(Double.doubleToRawLongBits(number), Long.BYTES);
+            } else if (value instanceof Float number) {
+                this.output.write(FLOAT);
+                this.writeFixed(Float.floatToRawIntBits(number), Integer.BYTES);
+            } else if (value instanceof Boolean bool) {
+                this.output.write(bool ? TRUE : FALSE);
+            } else if (value instanceof Short number) {
+                this.output.write(SHORT);
+                this.writeVarLong(zigzag(number));
+            } else if (value instanceof Byte number) {
+                this.output.write(BYTE);
+                this.output.write(number);
+            } else if (value instanceof List<?> list) {
+                this.output.write(LIST);
+                this.writeElements(list);
+            } else if (value instanceof Collection<?> collection) {
+                this.output.write(SET);
+                this.writeElements(collection);
+            } else if (value instanceof Map<?, ?> map) {
+                this.output.write(MAP);
+                this.writeMap(map);
+            } else if (value instanceof ConfigurationSerializable serializable) {
+                this.output.write(SERIALIZABLE);
+                this.writeString(ConfigurationSerialization.getAlias(serializable.getClass()));
+                this.writeMap(serializable.serialize());
+            } else {
+                throw new IllegalArgumentException("The value " + value + " of type " + value.getClass().getName() + " can't be encoded.");
+            }
+        }
+
+        /**
+         * Write the size and the elements of a collection, without tag.
+         * @param collection the collection
+         */
+        private void writeElements(Collection<?> collection) {
+            this.writeVarLong(collection.size());
+            for (Object element : collection) {
+                this.writeValue(element);
+            }
+        }
+
+        /**
+         * Write the size and the entries of a map, without tag.
+         * @param map the map
+         */
+        private void writeMap(Map<?, ?> map) {
+            this.writeVarLong(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                this.writeString(String.valueOf(entry.getKey()));
+                this.writeValue(entry.getValue());
+            }
+        }
+
+        /**
+         * Write a string with its tag, as a reference if it was already written.
+         * @param string the string
+         */
+        private void writeString(String string) {
+            Integer index = this.strings.get(string);
+            if (index != null) {
+                this.output.write(STRING_REF);
+                this.writeVarLong(index);
+                return;
+            }
+            this.strings.put(string, this.strings.size());
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            this.output.write(STRING);
+            this.writeVarLong(bytes.length);
+            this.output.write(bytes, 0, bytes.length);
+        }
+
+        /**
+         * Write an unsigned variable-length number, seven bits per byte.
+         * @param value the number
+         */
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                this.output.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            this.output.write((int) value);
+        }
+
+        /**
+         * Write a fixed-length number, most significant byte first.
+         * @param value the number
+         * @param bytes the number of bytes
+         */
+        private void writeFixed(long value, int bytes) {
+            for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8) {
+                this.output.write((int) (value >>> shift));
+            }
+        }
+
+        /**
+         * Map a signed number to an unsigned one, so small negative numbers stay short.
+         * @param value the number
+         * @return the zigzag-encoded number
+         */
+        private static long zigzag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+    }
+
+    /**
+     * The state of a decoding.
+     */
+    private static final class Reader {
+
+        /**
+         * The encoded bytes.
+         */
+        private final ByteBuffer input;
+
+        /**
+         * The strings already read, by index.
+         */
+        private final List<String> strings = new ArrayList<>();
+
+        /**
+         * Create a new reader.
+         * @param input the encoded bytes
+         */
+        private Reader(ByteBuffer input) {
+            this.input = input;
+        }
+
+        /**
+         * Read a value with its tag.
+         * @return the value
+         */
+        private Object readValue() {
+            byte tag = this.input.get();
+            return switch (tag) {
+                case NULL -> null;
+                case STRING, STRING_REF -> this.readString(tag);
+                case INT -> (int) unzigzag(this.readVarLong());
+                case LONG -> unzigzag(this.readVarLong());
+                case DOUBLE -> this.input.getDouble();
+                case FLOAT -> this.input.getFloat();
+                case TRUE -> true;
+                case FALSE -> false;
+                case SHORT -> (short) unzigzag(this.readVarLong());
+                case BYTE -> this.input.get();
+                case LIST -> this.readElements(new ArrayList<>());
+                case SET -> this.readElements(new LinkedHashSet<>());
+                case MAP -> this.readMap();
+                case SERIALIZABLE -> {
+                    String alias = this.readString(this.input.get());
+                    Map<String, Object> serialized = this.readMap();
+                    serialized.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, alias);
+                    yield ConfigurationSerialization.deserializeObject(serialized);
+                }
+                default -> throw new IllegalArgumentException("Unknown tag " + tag + ".");
+            };
+        }
+
+        /**
+         * Read the size and the elements of a collection, without tag.
+         * @param collection the empty collection to fill
+         * @param <C> the type of the collection
+         * @return the collection, in the written order
+         */
+        private <C extends Collection<Object>> C readElements(C collection) {
+            int size = this.readSize();
+            for (int i = 0; i < size; i++) {
+                collection.add(this.readValue());
+            }
+            return collection;
+        }
+
+        /**
+         * Read the size and the entries of a map, without tag.
+         * Nested serializable objects are deserialized before their parent, as in a YAML configuration.
+         * @return the map, in the written order
+         */
+        private Map<String, Object> readMap() {
+            int size = this.readSize();
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                String key = this.readString(this.input.get());
+                map.put(key, this.readValue());
+            }
+            return map;
+        }
+
+        /**
+         * Read a string or a reference to a string already read.
+         * @param tag the tag of the string
+         * @return the string
+         */
+        private String readString(byte tag) {
+            if (tag == STRING_REF) {
+                long index = this.readVarLong();
+                if (index < 0 || index >= this.strings.size()) {
+                    throw new IllegalArgumentException("Unknown string reference " + index + ".");
+                }
+                return this.strings.get((int) index);
+            }
+            if (tag != STRING) {
+                throw new IllegalArgumentException("Expected a string, found tag " + tag + ".");
+            }
+            byte[] bytes = new byte[this.readSize()];
+            this.input.get(bytes);
+            String string = new String(bytes, StandardCharsets.UTF_8);
+            this.strings.add(string);
+            return string;
+        }
+
+        /**
+         * Read a size, checking it fits in the remaining bytes.
+         * @return the size
+         */
+        private int readSize() {
+            long size = this.readVarLong();
+            if (size < 0 || size > this.input.remaining()) {
+                throw new IllegalArgumentException("Invalid size " + size + ".");
+            }
+            return (int) size;
+        }
+
+        /**
+         * Read an unsigned variable-length number.
+         * @return the number
+         */
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = this.input.get();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Variable-length number too long.");
+        }
+
+        /**
+         * Map an unsigned zigzag-encoded number back to a signed one.
+         * @param value the zigzag-encoded number
+         * @return the number
+         */
+        private static long unzigzag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
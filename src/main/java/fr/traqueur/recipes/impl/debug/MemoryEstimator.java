@@ -0,0 +1,183 @@
+package fr.traqueur.recipes.impl.debug;
+
+import fr.traqueur.recipes.api.MemoryReport;
+import fr.traqueur.recipes.api.domains.Ingredient;
+import fr.traqueur.recipes.impl.codec.ItemStackCodec;
+import fr.traqueur.recipes.impl.domains.ItemRecipe;
+import fr.traqueur.recipes.impl.matcher.MaterialSet;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * This class estimates the heap retained by recipes, assuming a 64-bit JVM with compressed references.
+ * An object shared between recipes, such as an interned ingredient or string, is counted once,
+ * by the first recipe referencing it.
+ * The sizes are estimates: Bukkit objects, such as item metas, are measured through their serialized form.
+ */
+public final class MemoryEstimator {
+
+    /**
+     * The size of an object header.
+     */
+    private static final int HEADER = 12;
+
+    /**
+     * The size of an array header.
+     */
+    private static final int ARRAY_HEADER = 16;
+
+    /**
+     * The size of a reference.
+     */
+    public static final int REFERENCE = 4;
+
+    /**
+     * The objects already counted.
+     */
+    private final Set<Object> counted = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Create a new estimator, counting each object once.
+     */
+    public MemoryEstimator() {
+    }
+
+    /**
+     * Estimate the memory retained by recipes.
+     * @param recipes the recipes
+     * @return the report
+     */
+    public static MemoryReport report(Collection<ItemRecipe> recipes) {
+        MemoryEstimator estimator = new MemoryEstimator();
+        Map<NamespacedKey, Long> bytesByRecipe = new LinkedHashMap<>();
+        Map<String, Long> bytesByIngredientType = new TreeMap<>();
+        Map<String, Integer> ingredientsByType = new TreeMap<>();
+        long total = 0;
+        for (ItemRecipe recipe : recipes) {
+            long bytes = recipe.estimateSize(estimator);
+            for (Ingredient ingredient : recipe.ingredients()) {
+                long ingredientBytes = estimator.ingredient(ingredient);
+                if (ingredientBytes > 0) {
+                    String type = ingredient.getClass().getSimpleName();
+                    bytesByIngredientType.merge(type, ingredientBytes, Long::sum);
+                    ingredientsByType.merge(type, 1, Integer::sum);
+                    bytes += ingredientBytes;
+                }
+            }
+            bytesByRecipe.merge(recipe.getKey(), bytes, Long::sum);
+            total += bytes;
+        }
+        return new MemoryReport(total, bytesByRecipe, bytesByIngredientType, ingredientsByType);
+    }
+
+    /**
+     * Check if an object is counted for the first time.
+     * @param object the object
+     * @return true if the object was not counted yet
+     */
+    public boolean firstSeen(Object object) {
+        return object != null && this.counted.add(object);
+    }
+
+    /**
+     * Estimate the size of an object, without the objects it references.
+     * @param references the number of reference fields
+     * @param primitiveBytes the size of the primitive fields
+     * @return the estimated size
+     */
+    public long object(int references, int primitiveBytes) {
+        return align(HEADER + (long) references * REFERENCE + primitiveBytes);
+    }
+
+    /**
+     * Estimate the size of an array, without the objects it references.
+     * @param length the length of the array
+     * @param elementBytes the size of an element
+     * @return the estimated size
+     */
+    public long array(int length, int elementBytes) {
+        return align(ARRAY_HEADER + (long) length * elementBytes);
+    }
+
+    /**
+     * Estimate the size of a string, if it was not counted yet.
+     * @param string the string, can be null
+     * @return the estimated size, 0 if already counted
+     */
+    public long string(String string) {
+        if (!this.firstSeen(string)) {
+            return 0;
+        }
+        boolean latin1 = string.chars().allMatch(c -> c < 256);
+        return this.object(1, 8) + this.array(string.length(), latin1 ? 1 : 2);
+    }
+
+    /**
+     * Estimate the size of a byte array, if it was not counted yet.
+     * @param bytes the array, can be null
+     * @return the estimated size, 0 if already counted
+     */
+    public long bytes(byte[] bytes) {
+        return this.firstSeen(bytes) ? this.array(bytes.length, 1) : 0;
+    }
+
+    /**
+     * Estimate the size of an item stack and its meta, if it was not counted yet.
+     * The meta is estimated as twice the size of its compact serialized form.
+     * @param item the item stack, can be null
+     * @return the estimated size, 0 if already counted
+     */
+    public long itemStack(ItemStack item) {
+        if (!this.firstSeen(item)) {
+            return 0;
+        }
+        long size = this.object(3, 4);
+        if (item.hasItemMeta()) {
+            try {
+                size += this.object(8, 8) + 2L * ItemStackCodec.encode(item).length() * 3 / 4;
+            } catch (IllegalArgumentException exception) {
+                size += this.object(8, 8);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Estimate the size of a material set, if it was not counted yet.
+     * @param set the set, can be null
+     * @return the estimated size, 0 if already counted
+     */
+    public long materialSet(MaterialSet set) {
+        if (!this.firstSeen(set)) {
+            return 0;
+        }
+        return this.object(1, 4) + this.array((Material.values().length + 63) / 64, 8);
+    }
+
+    /**
+     * Estimate the size of an ingredient, if it was not counted yet.
+     * @param ingredient the ingredient
+     * @return the estimated size, 0 if already counted
+     */
+    public long ingredient(Ingredient ingredient) {
+        return this.firstSeen(ingredient) ? ingredient.estimateSize(this) : 0;
+    }
+
+    /**
+     * Round a size up to the alignment of the objects.
+     * @param size the size
+     * @return the aligned size
+     */
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
@@ -0,0 +1,118 @@
+package fr.traqueur.recipes.impl.debug;
+
+import org.bukkit.NamespacedKey;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This class records the match decisions of the API into a fixed-size ring buffer.
+ * Recording is lock-free, the oldest decisions are overwritten once the buffer is full.
+ * When the tracer is disabled, recording is a single volatile read.
+ */
+public final class RecipeTracer {
+
+    /**
+     * The recorded decisions, indexed by sequence number modulo the capacity.
+     */
+    private final AtomicReferenceArray<TraceEvent> events;
+
+    /**
+     * The mask applied to a sequence number to get its index, the capacity being a power of two.
+     */
+    private final int mask;
+
+    /**
+     * The sequence number of the next decision.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * If the decisions are recorded.
+     */
+    private volatile boolean enabled;
+
+    /**
+     * Create a new tracer.
+     * @param capacity the number of decisions kept, rounded up to a power of two
+     */
+    public RecipeTracer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity of the tracer must be positive.");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.events = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Check if the decisions are recorded.
+     * @return true if the tracer is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enable or disable the recording of the decisions.
+     * @param enabled true to record the decisions
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Record a match decision if the tracer is enabled.
+     * @param key the key of the recipe
+     * @param slot the slot of the inventory concerned, or -1 if the decision concerns every slot
+     * @param reason the reason of the decision
+     */
+    public void record(NamespacedKey key, int slot, TraceReason reason) {
+        if (!this.enabled) {
+            return;
+        }
+        long sequence = this.sequence.getAndIncrement();
+        this.events.set((int) (sequence & this.mask), new TraceEvent(sequence, System.currentTimeMillis(), key, slot, reason));
+    }
+
+    /**
+     * Get the recorded decisions still in the buffer.
+     * @return the decisions, oldest first
+     */
+    public List<TraceEvent> snapshot() {
+        long end = this.sequence.get();
+        long start = Math.max(0, end - this.events.length());
+        List<TraceEvent> snapshot = new ArrayList<>((int) (end - start));
+        for (int i = 0; i < this.events.length(); i++) {
+            TraceEvent event = this.events.get(i);
+            if (event != null && event.sequence() >= start && event.sequence() < end) {
+                snapshot.add(event);
+            }
+        }
+        snapshot.sort(Comparator.comparingLong(TraceEvent::sequence));
+        return snapshot;
+    }
+
+    /**
+     * Forget every recorded decision.
+     */
+    public void clear() {
+        for (int i = 0; i < this.events.length(); i++) {
+            this.events.set(i, null);
+        }
+    }
+
+    /**
+     * Get the number of decisions kept by the tracer.
+     * @return the capacity of the ring buffer
+     */
+    public int capacity() {
+        return this.events.length();
+    }
+}
@@ -0,0 +1,19 @@
+package fr.traqueur.recipes.impl.debug;
+
+import org.bukkit.NamespacedKey;
+
+/**
+ * This record represents a match decision recorded by the {@link RecipeTracer}.
+ * @param sequence the sequence number of the decision
+ * @param timestamp the time of the decision, in milliseconds since the epoch
+ * @param key the key of the recipe
+ * @param slot the slot of the inventory concerned, or -1 if the decision concerns every slot
+ * @param reason the reason of the decision
+ */
+public record TraceEvent(long sequence, long timestamp, NamespacedKey key, int slot, TraceReason reason) {
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + key + (slot < 0 ? "" : " slot " + slot) + ": " + reason.getDescription();
+    }
+}
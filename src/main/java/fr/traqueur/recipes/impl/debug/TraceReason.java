@@ -0,0 +1,50 @@
+package fr.traqueur.recipes.impl.debug;
+
+/**
+ * This enum is used to define the reasons of the match decisions recorded by the {@link RecipeTracer}.
+ */
+public enum TraceReason {
+
+    /**
+     * The items matched the recipe, the result was set.
+     */
+    MATCHED("matched"),
+    /**
+     * The items matched a shapeless recipe by content while the server selected another recipe.
+     */
+    CONTENT_MATCHED("matched by content (key override)"),
+    /**
+     * The recipe is vanilla-exact, the server decision was kept.
+     */
+    VANILLA_EXACT("left to the server"),
+    /**
+     * The items don't match the pattern of a shaped recipe.
+     */
+    PATTERN_MISMATCH("pattern mismatch"),
+    /**
+     * An item doesn't match the ingredient of its slot.
+     */
+    INGREDIENT_MISMATCH("ingredient mismatch"),
+    ;
+
+    /**
+     * The description of the reason.
+     */
+    private final String description;
+
+    /**
+     * Create a new reason.
+     * @param description the description of the reason
+     */
+    TraceReason(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Get the description of the reason.
+     * @return the description
+     */
+    public String getDescription() {
+        return description;
+    }
+}
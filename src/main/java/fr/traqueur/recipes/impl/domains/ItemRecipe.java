@@ -4,36 +4,180 @@ import fr.traqueur.recipes.api.RecipeType;
 import fr.traqueur.recipes.api.Util;
 import fr.traqueur.recipes.api.domains.Ingredient;
 import fr.traqueur.recipes.api.hook.Hook;
+import fr.traqueur.recipes.impl.debug.MemoryEstimator;
+import fr.traqueur.recipes.impl.domains.ingredients.IngredientInterner;
+import fr.traqueur.recipes.impl.domains.ingredients.TagIngredient;
+import fr.traqueur.recipes.impl.matcher.MaterialSet;
+import fr.traqueur.recipes.impl.matcher.ShapedPattern;
+import fr.traqueur.recipes.impl.matcher.ShapelessMatcher;
+import fr.traqueur.recipes.impl.matcher.SmithingMatcher;
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.*;
 import org.bukkit.inventory.recipe.CookingBookCategory;
 import org.bukkit.inventory.recipe.CraftingBookCategory;
-import org.bukkit.util.io.BukkitObjectInputStream;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Base64;
-import java.util.zip.GZIPInputStream;
+import java.util.HexFormat;
+import java.util.Objects;
 
 /**
  * This class represents a recipe for an item
- * @param recipeName The name of the recipe
- * @param group The group of the recipe
- * @param category The category of the recipe
- * @param recipeType The type of the recipe
- * @param result The result of the recipe
- * @param amount The amount of the result
- * @param ingredients The ingredients of the recipe
- * @param pattern The pattern of the recipe
- * @param cookingTime The cooking time of the recipe
- * @param experience The experience of the recipe
- * @param priority The priority of the recipe (higher = registered first)
  */
-public record ItemRecipe(String recipeName, String group, String category, RecipeType recipeType, String result, int amount, Ingredient[] ingredients,
-                         String[] pattern, int cookingTime, float experience, int priority) {
+public final class ItemRecipe {
+
+    /**
+     * The name of the recipe
+     */
+    private final String recipeName;
+
+    /**
+     * The group of the recipe
+     */
+    private final String group;
+
+    /**
+     * The category of the recipe, a {@link CraftingBookCategory} or a {@link CookingBookCategory}, null if none
+     */
+    private final Enum<?> category;
+
+    /**
+     * The type of the recipe
+     */
+    private final RecipeType recipeType;
+
+    /**
+     * The result of the recipe, or only its prefix if the result is held as a binary payload
+     */
+    private final String result;
+
+    /**
+     * The decoded Base64 of a {@code base64:} or {@code bin1:} result, shared between recipes, null for other results
+     */
+    private final byte[] resultPayload;
+
+    /**
+     * The amount of the result
+     */
+    private final int amount;
+
+    /**
+     * The ingredients of the recipe
+     */
+    private final Ingredient[] ingredients;
+
+    /**
+     * The rows of the pattern of the recipe joined by line breaks, shared between recipes, null if none
+     */
+    private final String pattern;
+
+    /**
+     * The cooking time of the recipe
+     */
+    private final int cookingTime;
+
+    /**
+     * The experience of the recipe
+     */
+    private final float experience;
+
+    /**
+     * The priority of the recipe (higher = registered first)
+     */
+    private final int priority;
+
+    /**
+     * The compiled pattern of a shaped recipe, null for other types
+     */
+    private final ShapedPattern shapedPattern;
+
+    /**
+     * The compiled ingredients of a shapeless recipe, null for other types
+     * Compiled again when the tags of the server are reloaded
+     */
+    private volatile ShapelessMatcher shapelessMatcher;
+
+    /**
+     * The compiled ingredients of a smithing transform recipe, null for other types
+     * Compiled again when the tags of the server are reloaded
+     */
+    private volatile SmithingMatcher smithingMatcher;
+
+    /**
+     * If the result is provided by a hook
+     */
+    private final boolean hookResult;
+
+    /**
+     * If the server alone can match the recipe: every ingredient is vanilla-exact and the result is not provided by a hook
+     */
+    private final boolean vanillaExact;
+
+    /**
+     * The key of the recipe, null until first needed
+     */
+    private volatile NamespacedKey key;
+
+    /**
+     * The description of the content of the recipe, null until first needed
+     */
+    private volatile String contentSignature;
+
+    /**
+     * The decoded result, copied for each craft, null until first needed
+     */
+    private volatile ItemStack resultPrototype;
+
+    /**
+     * The material of the result, null until first needed
+     */
+    private volatile Material resultType;
+
+    /**
+     * Create a new recipe for an item
+     * @param recipeName The name of the recipe
+     * @param group The group of the recipe
+     * @param category The category of the recipe
+     * @param recipeType The type of the recipe
+     * @param result The result of the recipe
+     * @param amount The amount of the result
+     * @param ingredients The ingredients of the recipe
+     * @param pattern The pattern of the recipe
+     * @param cookingTime The cooking time of the recipe
+     * @param experience The experience of the recipe
+     * @param priority The priority of the recipe (higher = registered first)
+     */
+    public ItemRecipe(String recipeName, String group, String category, RecipeType recipeType, String result, int amount, Ingredient[] ingredients,
+                      String[] pattern, int cookingTime, float experience, int priority) {
+        this.recipeName = recipeName;
+        this.group = IngredientInterner.intern(group);
+        this.category = parseCategory(recipeType, category);
+        this.recipeType = recipeType;
+        byte[] payload = decodePayload(result);
+        this.resultPayload = payload == null ? null : IngredientInterner.intern(payload);
+        this.result = IngredientInterner.intern(payload == null ? result : result.substring(0, result.indexOf(':')));
+        this.amount = amount;
+        this.ingredients = ingredients;
+        this.pattern = pattern == null ? null : IngredientInterner.intern(String.join("\n", pattern));
+        this.cookingTime = cookingTime;
+        this.experience = experience;
+        this.priority = priority;
+        this.shapedPattern = recipeType == RecipeType.CRAFTING_SHAPED && pattern != null
+                ? ShapedPattern.compile(pattern, ingredients)
+                : null;
+        this.shapelessMatcher = recipeType == RecipeType.CRAFTING_SHAPELESS
+                ? ShapelessMatcher.compile(ingredients)
+                : null;
+        this.smithingMatcher = recipeType == RecipeType.SMITHING_TRANSFORM && ingredients.length == 3
+                ? SmithingMatcher.compile(ingredients)
+                : null;
+        this.hookResult = isHookResult(result);
+        this.vanillaExact = !this.hookResult && isVanillaExact(ingredients);
+    }
 
     /**
      * Convert the recipe to a bukkit recipe
@@ -45,15 +189,15 @@ public record ItemRecipe(String recipeName, String group, String category, Recip
         return switch (this.recipeType) {
             case CRAFTING_SHAPED -> {
                 var shapedRecipe = new ShapedRecipe(key, result);
-                shapedRecipe.shape(pattern);
+                shapedRecipe.shape(this.pattern());
                 for (Ingredient ingredient : ingredients) {
                     shapedRecipe.setIngredient(ingredient.sign(), ingredient.choice());
                 }
                 if (!group.isEmpty()) {
                     shapedRecipe.setGroup(group);
                 }
-                if (!category.isEmpty()) {
-                    shapedRecipe.setCategory(CraftingBookCategory.valueOf(category.toUpperCase()));
+                if (category instanceof CraftingBookCategory bookCategory) {
+                    shapedRecipe.setCategory(bookCategory);
                 }
                 yield shapedRecipe;
             }
@@ -65,8 +209,8 @@ public record ItemRecipe(String recipeName, String group, String category, Recip
                 if (!group.isEmpty()) {
                     shapelessRecipe.setGroup(group);
                 }
-                if (!category.isEmpty()) {
-                    shapelessRecipe.setCategory(CraftingBookCategory.valueOf(category.toUpperCase()));
+                if (category instanceof CraftingBookCategory bookCategory) {
+                    shapelessRecipe.setCategory(bookCategory);
                 }
                 yield shapelessRecipe;
             }
@@ -75,8 +219,8 @@ public record ItemRecipe(String recipeName, String group, String category, Recip
                 if (!group.isEmpty()) {
                     blastingRecipe.setGroup(group);
                 }
-                if (!category.isEmpty()) {
-                    blastingRecipe.setCategory(CookingBookCategory.valueOf(category.toUpperCase()));
+                if (category instanceof CookingBookCategory bookCategory) {
+                    blastingRecipe.setCategory(bookCategory);
                 }
                 yield blastingRecipe;
             }
@@ -85,8 +229,8 @@ public record ItemRecipe(String recipeName, String group, String category, Recip
                 if (!group.isEmpty()) {
                     campfireRecipe.setGroup(group);
                 }
-                if (!category.isEmpty()) {
-                    campfireRecipe.setCategory(CookingBookCategory.valueOf(category.toUpperCase()));
+                if (category instanceof CookingBookCategory bookCategory) {
+                    campfireRecipe.setCategory(bookCategory);
                 }
                 yield campfireRecipe;
             }
@@ -95,8 +239,8 @@ public record ItemRecipe(String recipeName, String group, String category, Recip
                 if (!group.isEmpty()) {
                     smokingRecipe.setGroup(group);
                 }
-                if (!category.isEmpty()) {
-                    smokingRecipe.setCategory(CookingBookCategory.valueOf(category.toUpperCase()));
+                if (category instanceof CookingBookCategory bookCategory) {
+                    smokingRecipe.setCategory(bookCategory);
                 }
                 yield smokingRecipe;
             }
@@ -112,8 +256,8 @@ public record ItemRecipe(String recipeName, String group, String category, Recip
                 if (!group.isEmpty()) {
                     furnaceRecipe.setGroup(group);
                 }
-                if (!category.isEmpty()) {
-                    furnaceRecipe.setCategory(CookingBookCategory.valueOf(category.toUpperCase()));
+                if (category instanceof CookingBookCategory bookCategory) {
+                    furnaceRecipe.setCategory(bookCategory);
                 }
                 yield furnaceRecipe;
             }
@@ -133,11 +277,49 @@ public record ItemRecipe(String recipeName, String group, String category, Recip
 
     /**
      * Convert the result to a bukkit item stack
+     * Results provided by a hook can depend on the player and are resolved on each call,
+     * other results are decoded once and a copy of the decoded stack is returned.
      * @param player The player to get the item stack for (can be null)
      * @return The bukkit item stack
      */
     public ItemStack toBukkitItemStack(Player player) {
+        if (this.hookResult) {
+            return this.createResult(player);
+        }
+        ItemStack prototype = this.resultPrototype;
+        if (prototype == null) {
+            prototype = this.createResult(null);
+            this.resultPrototype = prototype;
+        }
+        return prototype.clone();
+    }
+
+    /**
+     * Get the material of the result
+     * For results provided by a hook, the material is resolved once without player.
+     * @return The material of the result
+     */
+    public Material resultType() {
+        Material type = this.resultType;
+        if (type == null) {
+            type = this.hookResult ? this.createResult(null).getType() : this.toBukkitItemStack(null).getType();
+            this.resultType = type;
+        }
+        return type;
+    }
+
+    /**
+     * Create the result from its string representation
+     * @param player The player to get the item stack for (can be null)
+     * @return The bukkit item stack
+     */
+    private ItemStack createResult(Player player) {
         ItemStack result;
+        if (this.resultPayload != null) {
+            result = this.result.equals("bin1") ? Util.getCompactItemStack(this.resultPayload) : Util.getItemStack(this.resultPayload);
+            result.setAmount(this.amount());
+            return result;
+        }
         String[] resultParts = this.result.split(":");
         if(resultParts.length == 1) {
             result = new ItemStack(Util.getMaterial(resultParts[0]));
@@ -146,23 +328,386 @@ public record ItemRecipe(String recipeName, String group, String category, Recip
                 case "material" -> new ItemStack(Util.getMaterial(resultParts[1]));
                 case "item" -> new ItemStack(Util.getMaterial(resultParts[1]));
                 case "base64" -> Util.getItemStack(resultParts[1]);
-                default -> Hook.HOOKS.stream()
-                        .filter(Hook::isEnable)
-                        .filter(hook -> hook.getPluginName().equalsIgnoreCase(resultParts[0]))
-                        .findFirst()
-                        .orElseThrow(() -> new IllegalArgumentException("The result " + this.result + " isn't valid."))
-                        .getItemStack(player, resultParts[1]);
+                case "bin1" -> Util.getCompactItemStack(resultParts[1]);
+                default -> {
+                    Hook hook = Hook.getEnabledHook(resultParts[0]);
+                    if (hook == null) {
+                        throw new IllegalArgumentException("The result " + this.result + " isn't valid.");
+                    }
+                    yield hook.getItemStack(player, resultParts[1]);
+                }
             };
         }
         result.setAmount(this.amount());
         return result;
     }
 
+    /**
+     * Check if a result is provided by a hook
+     * @param result The result of the recipe
+     * @return True if the prefix of the result is not a built-in one
+     */
+    private static boolean isHookResult(String result) {
+        String[] resultParts = result.split(":");
+        if (resultParts.length == 1) {
+            return false;
+        }
+        return switch (resultParts[0]) {
+            case "material", "item", "base64", "bin1" -> false;
+            default -> true;
+        };
+    }
+
+    /**
+     * Decode the Base64 of a {@code base64:} or {@code bin1:} result
+     * @param result The result of the recipe
+     * @return The decoded bytes, or null if the result is of another type or is not valid Base64
+     */
+    private static byte[] decodePayload(String result) {
+        try {
+            if (result.startsWith("base64:")) {
+                return Base64.getDecoder().decode(result.substring("base64:".length()));
+            }
+            if (result.startsWith("bin1:")) {
+                return Base64.getUrlDecoder().decode(result.substring("bin1:".length()));
+            }
+        } catch (IllegalArgumentException exception) {
+            // Keep the string, the error is reported when the result is decoded.
+        }
+        return null;
+    }
+
+    /**
+     * Parse the category of a recipe
+     * An invalid category is logged and ignored, so the recipe is still registered without category.
+     * @param recipeType The type of the recipe
+     * @param category The name of the category, can be empty
+     * @return The category, or null if the recipe has none, its type has no category or the category is invalid
+     */
+    private static Enum<?> parseCategory(RecipeType recipeType, String category) {
+        if (category == null || category.isEmpty()) {
+            return null;
+        }
+        String name = category.toUpperCase();
+        try {
+            return switch (recipeType) {
+                case CRAFTING_SHAPED, CRAFTING_SHAPELESS -> CraftingBookCategory.valueOf(name);
+                case BLASTING, CAMPFIRE_COOKING, SMOKING, SMELTING -> CookingBookCategory.valueOf(name);
+                case STONE_CUTTING, SMITHING_TRANSFORM -> null;
+            };
+        } catch (IllegalArgumentException exception) {
+            RecipeType.getPlugin().getLogger().warning("The category " + category + " isn't valid for " + recipeType + ", the recipe has no category.");
+            return null;
+        }
+    }
+
+    /**
+     * Check if every ingredient is matched exactly by its recipe choice
+     * @param ingredients The ingredients of the recipe
+     * @return True if every ingredient is vanilla-exact
+     */
+    private static boolean isVanillaExact(Ingredient[] ingredients) {
+        for (Ingredient ingredient : ingredients) {
+            if (!ingredient.isVanillaExact()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Get the key of the recipe
+     * The key is built once and reused.
      * @return The key of the recipe
      */
     public NamespacedKey getKey() {
-        return this.recipeType().getNamespacedKey(recipeName);
+        NamespacedKey key = this.key;
+        if (key == null) {
+            key = this.recipeType().getNamespacedKey(recipeName);
+            this.key = key;
+        }
+        return key;
+    }
+
+    /**
+     * Get the name of the recipe
+     * @return The name of the recipe
+     */
+    public String recipeName() {
+        return recipeName;
+    }
+
+    /**
+     * Get the group of the recipe
+     * @return The group of the recipe
+     */
+    public String group() {
+        return group;
+    }
+
+    /**
+     * Get the category of the recipe
+     * @return The category of the recipe
+     */
+    public String category() {
+        return category == null ? "" : category.name();
+    }
+
+    /**
+     * Get the type of the recipe
+     * @return The type of the recipe
+     */
+    public RecipeType recipeType() {
+        return recipeType;
+    }
+
+    /**
+     * Get the result of the recipe
+     * A result held as a binary payload is encoded again on each call and not kept,
+     * the recipe itself only decodes its payload.
+     * @return The result of the recipe
+     */
+    public String result() {
+        if (resultPayload == null) {
+            return result;
+        }
+        Base64.Encoder encoder = result.equals("bin1") ? Base64.getUrlEncoder().withoutPadding() : Base64.getEncoder();
+        return result + ":" + encoder.encodeToString(resultPayload);
+    }
+
+    /**
+     * Get the amount of the result
+     * @return The amount of the result
+     */
+    public int amount() {
+        return amount;
+    }
+
+    /**
+     * Get the ingredients of the recipe
+     * @return The ingredients of the recipe
+     */
+    public Ingredient[] ingredients() {
+        return ingredients;
+    }
+
+    /**
+     * Get the pattern of the recipe
+     * @return A new array of the rows of the pattern, or null if the recipe has none
+     */
+    public String[] pattern() {
+        return pattern == null ? null : pattern.split("\n", -1);
+    }
+
+    /**
+     * Get the cooking time of the recipe
+     * @return The cooking time of the recipe
+     */
+    public int cookingTime() {
+        return cookingTime;
+    }
+
+    /**
+     * Get the experience of the recipe
+     * @return The experience of the recipe
+     */
+    public float experience() {
+        return experience;
+    }
+
+    /**
+     * Get the priority of the recipe
+     * @return The priority of the recipe (higher = registered first)
+     */
+    public int priority() {
+        return priority;
+    }
+
+    /**
+     * Get the compiled pattern of a shaped recipe
+     * @return The compiled pattern, or null if the recipe is not shaped
+     */
+    public ShapedPattern shapedPattern() {
+        return shapedPattern;
+    }
+
+    /**
+     * Get the compiled ingredients of a shapeless recipe
+     * @return The compiled ingredients, or null if the recipe is not shapeless
+     */
+    public ShapelessMatcher shapelessMatcher() {
+        return shapelessMatcher;
+    }
+
+    /**
+     * Get the compiled ingredients of a smithing transform recipe
+     * @return The compiled ingredients, or null if the recipe is not a smithing transform
+     */
+    public SmithingMatcher smithingMatcher() {
+        return smithingMatcher;
+    }
+
+    /**
+     * Compile the ingredients again with the current members of the tags
+     * Called when the tags of the server are reloaded, the indexes holding the recipe must be rebuilt afterwards.
+     * @return True if the recipe has a tag ingredient, so the materials it accepts may have changed
+     */
+    public boolean refreshTags() {
+        boolean tagged = false;
+        for (Ingredient ingredient : ingredients) {
+            tagged |= ingredient instanceof TagIngredient;
+        }
+        if (!tagged) {
+            return false;
+        }
+        if (shapelessMatcher != null) {
+            shapelessMatcher = ShapelessMatcher.compile(ingredients);
+        }
+        if (smithingMatcher != null) {
+            smithingMatcher = SmithingMatcher.compile(ingredients);
+        }
+        return true;
+    }
+
+    /**
+     * Check if the server alone can match the recipe
+     * Such recipes are not validated again by the API when they are crafted.
+     * @return True if every ingredient is vanilla-exact and the result is not provided by a hook
+     */
+    public boolean vanillaExact() {
+        return vanillaExact;
+    }
+
+    /**
+     * Estimate the heap retained by the recipe, without its ingredients
+     * The compiled matchers are estimated from the shape of the recipe.
+     * @param estimator The estimator of the memory report
+     * @return The estimated number of bytes
+     */
+    public long estimateSize(MemoryEstimator estimator) {
+        int references = MemoryEstimator.REFERENCE;
+        long size = estimator.object(15, 18) + estimator.string(recipeName) + estimator.string(group)
+                + estimator.string(result) + estimator.bytes(resultPayload) + estimator.string(pattern)
+                + estimator.array(ingredients.length, references) + estimator.string(contentSignature);
+        if (shapedPattern != null) {
+            size += estimator.object(3, 16) + estimator.array(shapedPattern.width() * shapedPattern.height(), references)
+                    + 2 * estimator.array(9, Integer.BYTES);
+        }
+        if (shapelessMatcher != null) {
+            size += estimator.object(3, 0) + 2 * estimator.array(ingredients.length, references)
+                    + estimator.materialSet(shapelessMatcher.acceptedMaterials());
+            for (MaterialSet materials : shapelessMatcher.materials()) {
+                size += estimator.materialSet(materials);
+            }
+        }
+        if (smithingMatcher != null) {
+            size += estimator.object(2, 0) + 2 * estimator.array(3, references);
+            for (MaterialSet materials : smithingMatcher.materials()) {
+                size += estimator.materialSet(materials);
+            }
+        }
+        NamespacedKey key = this.key;
+        if (key != null && estimator.firstSeen(key)) {
+            size += estimator.object(2, 0) + estimator.string(key.getNamespace()) + estimator.string(key.getKey());
+        }
+        return size + estimator.itemStack(resultPrototype);
+    }
+
+    /**
+     * Get a description of the content of the recipe
+     * Two recipes with the same signature are registered the same way on the server and match the same items,
+     * it is used to find the recipes changed by a reload.
+     * @return The signature of the recipe
+     */
+    public String contentSignature() {
+        String signature = this.contentSignature;
+        if (signature == null) {
+            StringBuilder builder = new StringBuilder()
+                    .append(recipeType).append('|').append(recipeName)
+                    .append('|').append(group).append('|').append(category)
+                    .append('|').append(describeResult()).append('|').append(amount)
+                    .append('|').append(pattern)
+                    .append('|').append(cookingTime).append('|').append(experience)
+                    .append('|').append(priority);
+            for (Ingredient ingredient : ingredients) {
+                builder.append('|').append(ingredient.getClass().getName())
+                        .append(':').append(ingredient.sign())
+                        .append(':').append(describe(ingredient));
+            }
+            signature = builder.toString();
+            this.contentSignature = signature;
+        }
+        return signature;
+    }
+
+    /**
+     * Describe the result for the signature of the recipe
+     * A binary payload is described by its digest, so the signature doesn't retain a copy of it.
+     * @return The description of the result
+     */
+    private String describeResult() {
+        if (resultPayload == null) {
+            return result;
+        }
+        try {
+            return result + "#" + HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(resultPayload));
+        } catch (NoSuchAlgorithmException exception) {
+            return this.result();
+        }
+    }
+
+    /**
+     * Describe an ingredient for the signature of the recipe
+     * An ingredient that can't be described is only equal to itself.
+     * @param ingredient The ingredient
+     * @return The description of the ingredient
+     */
+    private static String describe(Ingredient ingredient) {
+        try {
+            return ingredient.toString();
+        } catch (RuntimeException exception) {
+            return "@" + System.identityHashCode(ingredient);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ItemRecipe that)) return false;
+        return amount == that.amount
+                && cookingTime == that.cookingTime
+                && Float.compare(experience, that.experience) == 0
+                && priority == that.priority
+                && Objects.equals(recipeName, that.recipeName)
+                && Objects.equals(group, that.group)
+                && Objects.equals(category, that.category)
+                && recipeType == that.recipeType
+                && Objects.equals(result, that.result)
+                && Arrays.equals(resultPayload, that.resultPayload)
+                && ingredients == that.ingredients
+                && Objects.equals(pattern, that.pattern);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(recipeName, group, category, recipeType, result, Arrays.hashCode(resultPayload), amount,
+                System.identityHashCode(ingredients), pattern, cookingTime, experience, priority);
+    }
+
+    @Override
+    public String toString() {
+        return "ItemRecipe[" +
+                "recipeName=" + recipeName +
+                ", group=" + group +
+                ", category=" + category() +
+                ", recipeType=" + recipeType +
+                ", result=" + result() +
+                ", amount=" + amount +
+                ", ingredients=" + Arrays.toString(ingredients) +
+                ", pattern=" + Arrays.toString(pattern()) +
+                ", cookingTime=" + cookingTime +
+                ", experience=" + experience +
+                ", priority=" + priority +
+                ']';
     }
 }
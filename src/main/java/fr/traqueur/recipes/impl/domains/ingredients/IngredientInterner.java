@@ -0,0 +1,301 @@
+package fr.traqueur.recipes.impl.domains.ingredients;
+
+import fr.traqueur.recipes.api.domains.Ingredient;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * This class shares identical ingredients, strings and result payloads between recipes.
+ * Large recipe packs repeat the same ingredients many times: each one is parsed once,
+ * and ingredients equal by value are replaced by a single instance.
+ * The tables only hold their instances weakly: an instance no recipe uses anymore, such as the ingredient
+ * of a recipe edited since, is collected and its entry dropped, so the reloads don't grow the tables.
+ * The shared ingredients must not be modified, they own a copy of their items.
+ * It is safe to use from several threads.
+ */
+public final class IngredientInterner {
+
+    /**
+     * The parsed ingredients by specification.
+     */
+    private static final ConcurrentMap<Spec, SpecReference> INGREDIENTS_BY_SPEC = new ConcurrentHashMap<>();
+
+    /**
+     * The queue of the parsed ingredients collected, whose specification is dropped.
+     */
+    private static final ReferenceQueue<Ingredient> COLLECTED_SPECS = new ReferenceQueue<>();
+
+    /**
+     * The canonical instance of each ingredient.
+     */
+    private static final WeakTable<Ingredient> INGREDIENTS = new WeakTable<>(false);
+
+    /**
+     * The canonical instance of each string.
+     */
+    private static final WeakTable<String> STRINGS = new WeakTable<>(false);
+
+    /**
+     * The canonical instance of each byte array, by content.
+     */
+    private static final WeakTable<byte[]> PAYLOADS = new WeakTable<>(true);
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private IngredientInterner() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Get the shared ingredient of a specification, parsing it on first use.
+     * @param item the string representation of the ingredient
+     * @param sign the sign of the ingredient
+     * @param strict whether the ingredient uses strict matching
+     * @param parser the parser of the ingredient, called if the specification is not known yet
+     * @return the shared ingredient
+     * @throws IllegalArgumentException if the ingredient can't be parsed; nothing is then remembered
+     */
+    public static Ingredient intern(String item, Character sign, boolean strict, Supplier<Ingredient> parser) {
+        expungeSpecs();
+        Spec spec = new Spec(item, sign, strict);
+        SpecReference reference = INGREDIENTS_BY_SPEC.get(spec);
+        Ingredient ingredient = reference == null ? null : reference.get();
+        if (ingredient != null) {
+            return ingredient;
+        }
+        ingredient = intern(parser.get());
+        while (true) {
+            SpecReference added = new SpecReference(spec, ingredient);
+            SpecReference previous = INGREDIENTS_BY_SPEC.putIfAbsent(spec, added);
+            if (previous == null) {
+                return ingredient;
+            }
+            Ingredient existing = previous.get();
+            if (existing != null) {
+                return existing;
+            }
+            // The previous ingredient was collected: replace its entry.
+            INGREDIENTS_BY_SPEC.remove(spec, previous);
+        }
+    }
+
+    /**
+     * Get the shared instance of an ingredient.
+     * @param ingredient the ingredient
+     * @return the first registered ingredient equal to this one and still used
+     */
+    public static Ingredient intern(Ingredient ingredient) {
+        return INGREDIENTS.intern(ingredient);
+    }
+
+    /**
+     * Get the shared instance of a string.
+     * @param string the string, can be null
+     * @return the first registered string equal to this one and still used, or null
+     */
+    public static String intern(String string) {
+        return string == null ? null : STRINGS.intern(string);
+    }
+
+    /**
+     * Get the shared instance of a byte array, such as the binary payload of a result.
+     * @param payload the byte array, it must not be modified afterwards
+     * @return the first registered byte array with the same content and still used
+     */
+    public static byte[] intern(byte[] payload) {
+        return PAYLOADS.intern(payload);
+    }
+
+    /**
+     * Forget the shared instances.
+     * The instances already shared stay valid, only the following ones are shared again from scratch.
+     * The unused instances are dropped on their own, clearing only releases the tables at once,
+     * such as when the plugin is disabled.
+     */
+    public static void clear() {
+        INGREDIENTS_BY_SPEC.clear();
+        INGREDIENTS.clear();
+        STRINGS.clear();
+        PAYLOADS.clear();
+    }
+
+    /**
+     * Get the number of shared ingredients.
+     * @return the number of ingredients, collected ones not dropped yet included
+     */
+    public static int size() {
+        return INGREDIENTS.size();
+    }
+
+    /**
+     * Drop the specifications of the collected ingredients.
+     */
+    private static void expungeSpecs() {
+        Reference<? extends Ingredient> reference;
+        while ((reference = COLLECTED_SPECS.poll()) != null) {
+            SpecReference collected = (SpecReference) reference;
+            INGREDIENTS_BY_SPEC.remove(collected.spec, collected);
+        }
+    }
+
+    /**
+     * The specification of a parsed ingredient.
+     * @param item the string representation of the ingredient
+     * @param sign the sign of the ingredient
+     * @param strict whether the ingredient uses strict matching
+     */
+    private record Spec(String item, Character sign, boolean strict) {
+    }
+
+    /**
+     * A weak reference to a parsed ingredient, remembering its specification to drop it once collected.
+     */
+    private static final class SpecReference extends WeakReference<Ingredient> {
+
+        /**
+         * The specification of the ingredient.
+         */
+        private final Spec spec;
+
+        /**
+         * Create a reference to a parsed ingredient.
+         * @param spec the specification of the ingredient
+         * @param ingredient the ingredient
+         */
+        private SpecReference(Spec spec, Ingredient ingredient) {
+            super(ingredient, COLLECTED_SPECS);
+            this.spec = spec;
+        }
+    }
+
+    /**
+     * A table of canonical instances, held weakly and compared by value.
+     * @param <T> the type of the instances
+     */
+    private static final class WeakTable<T> {
+
+        /**
+         * The entries, each one being its own key.
+         */
+        private final ConcurrentMap<Entry<T>, Entry<T>> entries = new ConcurrentHashMap<>();
+
+        /**
+         * The queue of the entries whose instance was collected.
+         */
+        private final ReferenceQueue<T> collected = new ReferenceQueue<>();
+
+        /**
+         * If the instances are arrays, compared by content.
+         */
+        private final boolean arrays;
+
+        /**
+         * Create a new table.
+         * @param arrays true if the instances are byte arrays, compared by content
+         */
+        private WeakTable(boolean arrays) {
+            this.arrays = arrays;
+        }
+
+        /**
+         * Get the canonical instance of a value, registering it if there is none.
+         * @param value the value
+         * @return the canonical instance
+         */
+        private T intern(T value) {
+            this.expunge();
+            Entry<T> entry = new Entry<>(value, this.collected, this.arrays);
+            while (true) {
+                Entry<T> previous = this.entries.putIfAbsent(entry, entry);
+                if (previous == null) {
+                    return value;
+                }
+                T existing = previous.get();
+                if (existing != null) {
+                    return existing;
+                }
+                this.entries.remove(previous, previous);
+            }
+        }
+
+        /**
+         * Drop the entries whose instance was collected.
+         */
+        @SuppressWarnings("unchecked")
+        private void expunge() {
+            Reference<? extends T> reference;
+            while ((reference = this.collected.poll()) != null) {
+                Entry<T> entry = (Entry<T>) reference;
+                this.entries.remove(entry, entry);
+            }
+        }
+
+        /**
+         * Forget every instance.
+         */
+        private void clear() {
+            this.entries.clear();
+        }
+
+        /**
+         * Get the number of entries.
+         * @return the number of entries
+         */
+        private int size() {
+            return this.entries.size();
+        }
+    }
+
+    /**
+     * A weak entry of a {@link WeakTable}, equal to the entries holding an equal instance.
+     * An entry whose instance was collected is only equal to itself.
+     * @param <T> the type of the instance
+     */
+    private static final class Entry<T> extends WeakReference<T> {
+
+        /**
+         * The hash of the instance, kept once it is collected.
+         */
+        private final int hash;
+
+        /**
+         * If the instance is a byte array, compared by content.
+         */
+        private final boolean array;
+
+        /**
+         * Create an entry.
+         * @param value the instance
+         * @param queue the queue notified when the instance is collected
+         * @param array true if the instance is a byte array
+         */
+        private Entry(T value, ReferenceQueue<T> queue, boolean array) {
+            super(value, queue);
+            this.array = array;
+            this.hash = array ? Arrays.hashCode((byte[]) value) : value.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Entry<?> that) || this.hash != that.hash) return false;
+            Object value = this.get();
+            Object other = that.get();
+            if (value == null || other == null) return false;
+            return this.array ? Arrays.equals((byte[]) value, (byte[]) other) : Objects.equals(value, other);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+}
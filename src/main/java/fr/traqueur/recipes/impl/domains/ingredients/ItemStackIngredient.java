@@ -1,13 +1,17 @@
 package fr.traqueur.recipes.impl.domains.ingredients;
 
 import fr.traqueur.recipes.api.domains.Ingredient;
+import fr.traqueur.recipes.impl.debug.MemoryEstimator;
+import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.RecipeChoice;
 import org.bukkit.inventory.meta.ItemMeta;
-
+import org.bukkit.persistence.PersistentDataContainer;
 import org.bukkit.persistence.PersistentDataType;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -16,18 +20,70 @@ import java.util.Objects;
 public class ItemStackIngredient extends Ingredient {
 
     /**
-     * The item of the ingredient
+     * The item of the ingredient, a copy owned by the ingredient that must not be modified
      */
     protected final ItemStack item;
 
+    /**
+     * The PDC types tried, in order, to resolve the type of a PDC value of the ingredient
+     */
+    private static final PersistentDataType<?, ?>[] PDC_TYPES = {
+            PersistentDataType.STRING,
+            PersistentDataType.INTEGER,
+            PersistentDataType.LONG,
+            PersistentDataType.DOUBLE,
+            PersistentDataType.FLOAT,
+            PersistentDataType.BYTE,
+    };
+
+    /**
+     * The material required, null if the ingredient has no item
+     */
+    private final Material type;
+
+    /**
+     * If the ingredient item has meta
+     */
+    private final boolean hasMeta;
+
+    /**
+     * The custom model data required, null if not checked
+     */
+    private final Integer customModelData;
+
+    /**
+     * The display name required, null if not checked
+     */
+    private final String displayName;
+
+    /**
+     * The lore required, null if not checked
+     */
+    private final List<String> lore;
+
+    /**
+     * The PDC entries required, with their resolved types and expected values
+     */
+    private final PdcRequirement[] pdcRequirements;
+
     /**
      * Create a new ItemStackIngredient
+     * The item is copied and its requirements compiled once: the ingredient, which can be shared
+     * between recipes, doesn't change if the given item is modified afterwards.
      * @param item The item of the ingredient
      * @param sign The sign of the ingredient
      */
     public ItemStackIngredient(ItemStack item, Character sign) {
         super(sign);
-        this.item = item;
+        this.item = item == null ? null : item.clone();
+
+        ItemMeta meta = item != null && item.hasItemMeta() ? item.getItemMeta() : null;
+        this.type = item == null ? null : item.getType();
+        this.hasMeta = meta != null;
+        this.customModelData = meta != null && meta.hasCustomModelData() ? meta.getCustomModelData() : null;
+        this.displayName = meta != null && meta.hasDisplayName() ? meta.getDisplayName() : null;
+        this.lore = meta != null && meta.hasLore() ? meta.getLore() : null;
+        this.pdcRequirements = meta == null ? new PdcRequirement[0] : compilePDC(meta.getPersistentDataContainer());
     }
 
     /**
@@ -38,6 +94,27 @@ public class ItemStackIngredient extends Ingredient {
         this(item, null);
     }
 
+    /**
+     * Resolve the type and the value of each PDC key of the ingredient.
+     * Tries common primitive types; complex types only require the key to exist.
+     * @param container the PDC of the ingredient
+     * @return the PDC requirements
+     */
+    private static PdcRequirement[] compilePDC(PersistentDataContainer container) {
+        List<PdcRequirement> requirements = new ArrayList<>();
+        for (NamespacedKey key : container.getKeys()) {
+            PdcRequirement requirement = new PdcRequirement(key, null, null);
+            for (PersistentDataType<?, ?> pdcType : PDC_TYPES) {
+                if (container.has(key, pdcType)) {
+                    requirement = new PdcRequirement(key, pdcType, container.get(key, pdcType));
+                    break;
+                }
+            }
+            requirements.add(requirement);
+        }
+        return requirements.toArray(new PdcRequirement[0]);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -49,98 +126,89 @@ public class ItemStackIngredient extends Ingredient {
 
         // Amount is not compared: the quantity requirement is expressed by having multiple
         // ingredient entries, not by the amount stored in each ingredient ItemStack.
-        return item.getType() == this.item.getType()
-                && item.getAmount() >= 1
-                && item.hasItemMeta() == this.item.hasItemMeta()
-                && (!item.hasItemMeta() || similarMeta(item.getItemMeta(), this.item.getItemMeta()));
+        if (item.getType() != this.type || item.getAmount() < 1 || item.hasItemMeta() != this.hasMeta) {
+            return false;
+        }
+        return !this.hasMeta || this.similarMeta(item.getItemMeta());
     }
 
     /**
-     * Check if the meta of the two items are similar.
-     * Verifies PDC key existence and values, lore, custom model data, and display name.
-     * @param sourceMeta The source meta (item in the crafting grid)
-     * @param ingredientMeta The ingredient meta (required ingredient)
+     * Check if the meta of an item satisfies the requirements of the ingredient.
+     * Verifies custom model data, display name, lore, and PDC key existence and values,
+     * cheapest first.
+     * @param sourceMeta The source meta (item in the crafting grid), read once
      * @return True if the source satisfies all ingredient meta requirements
      */
-    private boolean similarMeta(ItemMeta sourceMeta, ItemMeta ingredientMeta) {
-        // Check PDC: all ingredient keys must exist in source with matching values
-        for (NamespacedKey key : ingredientMeta.getPersistentDataContainer().getKeys()) {
-            if (!sourceMeta.getPersistentDataContainer().has(key)) {
-                return false;
-            }
-            if (!comparePDCValue(key, sourceMeta, ingredientMeta)) {
+    private boolean similarMeta(ItemMeta sourceMeta) {
+        // Check custom model data (only if ingredient has custom model data)
+        if (this.customModelData != null) {
+            if (!sourceMeta.hasCustomModelData() || sourceMeta.getCustomModelData() != this.customModelData) {
                 return false;
             }
         }
 
         // Check display name (only if ingredient has one)
-        if (ingredientMeta.hasDisplayName()) {
-            if (!sourceMeta.hasDisplayName() || !ingredientMeta.getDisplayName().equals(sourceMeta.getDisplayName())) {
+        if (this.displayName != null) {
+            if (!sourceMeta.hasDisplayName() || !this.displayName.equals(sourceMeta.getDisplayName())) {
                 return false;
             }
         }
 
         // Check lore (only if ingredient has lore)
-        if (ingredientMeta.hasLore()) {
-            if (!sourceMeta.hasLore() || !Objects.equals(sourceMeta.getLore(), ingredientMeta.getLore())) {
+        if (this.lore != null) {
+            if (!sourceMeta.hasLore() || !this.lore.equals(sourceMeta.getLore())) {
                 return false;
             }
         }
 
-        // Check custom model data (only if ingredient has custom model data)
-        if (ingredientMeta.hasCustomModelData()) {
-            return sourceMeta.hasCustomModelData() && sourceMeta.getCustomModelData() == ingredientMeta.getCustomModelData();
+        // Check PDC: all ingredient keys must exist in source with matching values
+        if (this.pdcRequirements.length > 0) {
+            PersistentDataContainer container = sourceMeta.getPersistentDataContainer();
+            for (PdcRequirement requirement : this.pdcRequirements) {
+                if (!requirement.isSatisfied(container)) {
+                    return false;
+                }
+            }
         }
-
         return true;
     }
 
     /**
-     * Compare the value of a PDC key between source and ingredient metas.
-     * Tries common primitive types; falls back to existence-only check for complex types.
-     * @param key the PDC key to compare
-     * @param sourceMeta the source item meta
-     * @param ingredientMeta the ingredient item meta
-     * @return true if the values are equal (or if the type is complex and only existence is verified)
+     * {@inheritDoc}
      */
-    private boolean comparePDCValue(NamespacedKey key, ItemMeta sourceMeta, ItemMeta ingredientMeta) {
-        var ingPDC = ingredientMeta.getPersistentDataContainer();
-        var srcPDC = sourceMeta.getPersistentDataContainer();
-
-        if (ingPDC.has(key, PersistentDataType.STRING)) {
-            return Objects.equals(ingPDC.get(key, PersistentDataType.STRING),
-                    srcPDC.get(key, PersistentDataType.STRING));
-        }
-        if (ingPDC.has(key, PersistentDataType.INTEGER)) {
-            return Objects.equals(ingPDC.get(key, PersistentDataType.INTEGER),
-                    srcPDC.get(key, PersistentDataType.INTEGER));
-        }
-        if (ingPDC.has(key, PersistentDataType.LONG)) {
-            return Objects.equals(ingPDC.get(key, PersistentDataType.LONG),
-                    srcPDC.get(key, PersistentDataType.LONG));
-        }
-        if (ingPDC.has(key, PersistentDataType.DOUBLE)) {
-            return Objects.equals(ingPDC.get(key, PersistentDataType.DOUBLE),
-                    srcPDC.get(key, PersistentDataType.DOUBLE));
-        }
-        if (ingPDC.has(key, PersistentDataType.FLOAT)) {
-            return Objects.equals(ingPDC.get(key, PersistentDataType.FLOAT),
-                    srcPDC.get(key, PersistentDataType.FLOAT));
-        }
-        if (ingPDC.has(key, PersistentDataType.BYTE)) {
-            return Objects.equals(ingPDC.get(key, PersistentDataType.BYTE),
-                    srcPDC.get(key, PersistentDataType.BYTE));
-        }
-        // Complex types (BYTE_ARRAY, TAG_CONTAINER, etc.): fall back to existence-only check
-        return ingPDC.has(key) == srcPDC.has(key);
+    @Override
+    public RecipeChoice choice() {
+        return new RecipeChoice.MaterialChoice(this.item.getType());
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public RecipeChoice choice() {
-        return new RecipeChoice.MaterialChoice(this.item.getType());
+    public long estimateSize(MemoryEstimator estimator) {
+        long size = estimator.object(8, 1) + estimator.itemStack(this.item) + estimator.string(this.displayName)
+                + estimator.array(this.pdcRequirements.length, MemoryEstimator.REFERENCE)
+                + this.pdcRequirements.length * estimator.object(3, 0);
+        if (this.lore != null) {
+            size += estimator.object(2, 4) + estimator.array(this.lore.size(), MemoryEstimator.REFERENCE);
+            for (String line : this.lore) {
+                size += estimator.string(line);
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ItemStackIngredient that = (ItemStackIngredient) o;
+        return Objects.equals(item, that.item) && Objects.equals(sign(), that.sign());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(item, sign());
     }
 
     @Override
@@ -149,4 +217,25 @@ public class ItemStackIngredient extends Ingredient {
                 "item=" + item +
                 '}';
     }
+
+    /**
+     * A PDC entry required by the ingredient.
+     * @param key the key of the entry
+     * @param type the resolved type of the value, null for complex types checked by existence only
+     * @param expected the expected value, null for complex types
+     */
+    private record PdcRequirement(NamespacedKey key, PersistentDataType<?, ?> type, Object expected) {
+
+        /**
+         * Check if a PDC satisfies the requirement.
+         * @param container the PDC of the source item
+         * @return true if the entry exists with the expected value
+         */
+        private boolean isSatisfied(PersistentDataContainer container) {
+            if (this.type == null) {
+                return container.has(this.key);
+            }
+            return container.has(this.key, this.type) && this.expected.equals(container.get(this.key, this.type));
+        }
+    }
 }
@@ -5,6 +5,8 @@ import org.bukkit.Material;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.RecipeChoice;
 
+import java.util.Objects;
+
 /**
  * A material ingredient
  */
@@ -49,6 +51,27 @@ public class MaterialIngredient extends Ingredient {
         return new RecipeChoice.MaterialChoice(this.material);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isVanillaExact() {
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MaterialIngredient that = (MaterialIngredient) o;
+        return material == that.material && Objects.equals(sign(), that.sign());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(material, sign());
+    }
+
     @Override
     public String toString() {
         return this.material.toString();
@@ -38,7 +38,15 @@ public class StrictItemStackIngredient extends ItemStackIngredient {
      */
     @Override
     public RecipeChoice choice() {
-        return new RecipeChoice.ExactChoice(this.item);
+        return new RecipeChoice.ExactChoice(this.item.clone());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isVanillaExact() {
+        return true;
     }
 
     @Override
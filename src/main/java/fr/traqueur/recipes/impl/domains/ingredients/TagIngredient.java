@@ -1,21 +1,40 @@
 package fr.traqueur.recipes.impl.domains.ingredients;
 
 import fr.traqueur.recipes.api.domains.Ingredient;
+import fr.traqueur.recipes.impl.debug.MemoryEstimator;
+import fr.traqueur.recipes.impl.matcher.MaterialSet;
 import org.bukkit.Material;
 import org.bukkit.Tag;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.RecipeChoice;
 
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * This class represents an ingredient that is a tag
+ * The members of the tag are snapshotted into a {@link MaterialSet},
+ * taken again after the tags of the server are reloaded.
+ * The material prefilters of the matchers and indexes use these members,
+ * and are rebuilt by the registry when the tags are reloaded.
  */
 public class TagIngredient extends Ingredient {
 
+    /**
+     * The generation of the tags, incremented each time the tags of the server are reloaded
+     */
+    private static final AtomicInteger GENERATION = new AtomicInteger();
+
     /**
      * The tag of the ingredient
      */
     private final Tag<Material> tag;
 
+    /**
+     * The snapshot of the members of the tag
+     */
+    private volatile Snapshot snapshot;
+
     /**
      * Create a new TagIngredient
      * @param tag The tag of the ingredient
@@ -24,6 +43,7 @@ public class TagIngredient extends Ingredient {
     public TagIngredient(Tag<Material> tag, Character sign) {
         super(sign);
         this.tag = tag;
+        this.snapshot = this.takeSnapshot(GENERATION.get());
     }
 
     /**
@@ -34,12 +54,52 @@ public class TagIngredient extends Ingredient {
         this(tag, null);
     }
 
+    /**
+     * Mark the snapshots of every tag ingredient as stale
+     * Called when the tags of the server are reloaded, before the compiled recipes are rebuilt,
+     * see {@link MaterialSet#of(Ingredient)}
+     */
+    public static void refreshAll() {
+        GENERATION.incrementAndGet();
+    }
+
+    /**
+     * Get the snapshot of the members of the tag, taking it again if the tags were reloaded
+     * @return The snapshot
+     */
+    private Snapshot getSnapshot() {
+        int generation = GENERATION.get();
+        Snapshot snapshot = this.snapshot;
+        if (snapshot.generation() != generation) {
+            snapshot = this.takeSnapshot(generation);
+            this.snapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Take a snapshot of the members of the tag
+     * @param generation The current generation of the tags
+     * @return The snapshot
+     */
+    private Snapshot takeSnapshot(int generation) {
+        return new Snapshot(generation, MaterialSet.of(this.tag.getValues()), new RecipeChoice.MaterialChoice(this.tag));
+    }
+
+    /**
+     * Get the current members of the tag
+     * @return The materials of the tag
+     */
+    public MaterialSet members() {
+        return this.getSnapshot().members();
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public boolean isSimilar(ItemStack item) {
-        return this.tag.isTagged(item.getType());
+        return item != null && this.getSnapshot().members().contains(item.getType());
     }
 
     /**
@@ -47,11 +107,51 @@ public class TagIngredient extends Ingredient {
      */
     @Override
     public RecipeChoice choice() {
-        return new RecipeChoice.MaterialChoice(this.tag);
+        return this.getSnapshot().choice();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isVanillaExact() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long estimateSize(MemoryEstimator estimator) {
+        Snapshot snapshot = this.snapshot;
+        return estimator.object(3, 0) + estimator.object(2, 4) + estimator.materialSet(snapshot.members())
+                + estimator.object(1, 0) + estimator.array(snapshot.members().size(), MemoryEstimator.REFERENCE);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TagIngredient that = (TagIngredient) o;
+        return tag.getKey().equals(that.tag.getKey()) && Objects.equals(sign(), that.sign());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tag.getKey(), sign());
     }
 
     @Override
     public String toString() {
         return this.tag.getKey().toString();
     }
+
+    /**
+     * The members of the tag at a given generation
+     * @param generation The generation of the tags when the snapshot was taken
+     * @param members The materials of the tag
+     * @param choice The recipe choice of the tag
+     */
+    private record Snapshot(int generation, MaterialSet members, RecipeChoice choice) {
+    }
 }
@@ -97,7 +97,12 @@ public class RecipeBuilder implements Recipe {
         if(type == null) {
             throw new IllegalArgumentException("Recipe type is not set");
         }
-        this.result = "base64:" + Util.fromItemStack(result);
+        try {
+            this.result = "bin1:" + Util.fromItemStackCompact(result);
+        } catch (IllegalArgumentException exception) {
+            // A meta value the compact codec doesn't know, kept in the Java serialized form.
+            this.result = "base64:" + Util.fromItemStack(result);
+        }
         return this;
     }
 
@@ -5,6 +5,7 @@ import fr.traqueur.recipes.api.Util;
 import fr.traqueur.recipes.api.domains.Ingredient;
 import fr.traqueur.recipes.api.domains.Recipe;
 import fr.traqueur.recipes.impl.domains.ItemRecipe;
+import fr.traqueur.recipes.impl.loader.RecipeSpec;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.recipe.CookingBookCategory;
@@ -23,6 +24,11 @@ public class RecipeConfiguration implements Recipe {
      */
     private final List<Ingredient> ingredientList = new ArrayList<>();
 
+    /**
+     * The list of ingredients, as written in the configuration.
+     */
+    private final List<RecipeSpec.IngredientSpec> ingredientSpecs = new ArrayList<>();
+
     /**
      * The name of the recipe.
      */
@@ -89,6 +95,17 @@ public class RecipeConfiguration implements Recipe {
      * @param configuration the configuration of the recipe.
      */
     public RecipeConfiguration(String name, String path, YamlConfiguration configuration) {
+        this(name, path, configuration, true);
+    }
+
+    /**
+     * The constructor of the recipe.
+     * @param name the name of the recipe.
+     * @param path the path of the recipe.
+     * @param configuration the configuration of the recipe.
+     * @param parseIngredients true to parse the ingredients, false to only read them.
+     */
+    private RecipeConfiguration(String name, String path, YamlConfiguration configuration, boolean parseIngredients) {
         this.name = name.replace(".yml", "");
         if(!path.endsWith(".") && !path.isEmpty()) {
             path += ".";
@@ -120,8 +137,10 @@ public class RecipeConfiguration implements Recipe {
             Character sign = objSign == null ? null : objSign.toString().charAt(0);
             boolean strict = this.isStrict(ingredient);
 
-            Ingredient ingred = Util.parseIngredient(material, sign, strict);
-            this.ingredientList.add(ingred);
+            if (parseIngredients) {
+                this.ingredientList.add(Util.parseIngredient(material, sign, strict));
+            }
+            this.ingredientSpecs.add(new RecipeSpec.IngredientSpec(material, sign, strict));
         }
 
         if(!configuration.contains(path + "result.item")) {
@@ -210,7 +229,7 @@ public class RecipeConfiguration implements Recipe {
         // Validate that all pattern characters will have corresponding ingredients
         if (!patternChars.isEmpty()) {
             Set<Character> ingredientSigns = new HashSet<>();
-            for (Ingredient ingredient : ingredientList) {
+            for (RecipeSpec.IngredientSpec ingredient : ingredientSpecs) {
                 if (ingredient.sign() != null) {
                     ingredientSigns.add(ingredient.sign());
                 }
@@ -312,6 +331,14 @@ public class RecipeConfiguration implements Recipe {
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
+    /**
+     * Get the name of the recipe.
+     * @return the name of the recipe.
+     */
+    public String getName() {
+        return name;
+    }
+
     /**
      * Get the priority of the recipe.
      * @return the priority of the recipe.
@@ -320,6 +347,28 @@ public class RecipeConfiguration implements Recipe {
         return priority;
     }
 
+    /**
+     * Validate the configuration of a recipe without parsing its ingredients.
+     * The server and the hooks are not read, so it can run on any thread;
+     * the ingredients are parsed when the returned specification is built.
+     * @param name the name of the recipe.
+     * @param path the path of the recipe.
+     * @param configuration the configuration of the recipe.
+     * @return the specification of the recipe.
+     */
+    public static RecipeSpec toSpec(String name, String path, YamlConfiguration configuration) {
+        return new RecipeConfiguration(name, path, configuration, false).toSpec();
+    }
+
+    /**
+     * Get the validated configuration of the recipe, to build it again without reading the configuration.
+     * @return the specification of the recipe.
+     */
+    public RecipeSpec toSpec() {
+        return new RecipeSpec(name, type, group, category, resultStr, amount, pattern, cookingTime, experience, priority,
+                List.copyOf(ingredientSpecs));
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,84 @@
+package fr.traqueur.recipes.impl.hook;
+
+import fr.traqueur.recipes.impl.hook.hooks.ItemsAdderLoadListener;
+import fr.traqueur.recipes.impl.hook.hooks.OraxenLoadListener;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.server.PluginEnableEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * This class is used to invalidate the cached enablement of the hooks
+ * when a plugin is enabled or disabled.
+ * It also registers the listeners of the item reloads of the hook plugins once they are enabled.
+ */
+public class HookListener implements Listener {
+
+    /**
+     * The plugin owning the listeners.
+     */
+    private final Plugin plugin;
+
+    /**
+     * The names of the hook plugins whose load listener is registered.
+     */
+    private final Set<String> loadListeners = new HashSet<>();
+
+    /**
+     * Creates a new HookListener instance.
+     * @param plugin the plugin owning the listeners
+     */
+    public HookListener(Plugin plugin) {
+        this.plugin = plugin;
+        this.registerLoadListeners();
+    }
+
+    /**
+     * This method is called when a plugin is enabled.
+     * @param event the event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginEnable(PluginEnableEvent event) {
+        HookRegistry.invalidate();
+        this.registerLoadListeners();
+    }
+
+    /**
+     * This method is called when a plugin is disabled.
+     * @param event the event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginDisable(PluginDisableEvent event) {
+        HookRegistry.invalidate();
+    }
+
+    /**
+     * Register the load listeners of the enabled hook plugins.
+     * The listeners reference classes of the hook plugins, so they are only registered once the plugin is enabled.
+     */
+    private void registerLoadListeners() {
+        this.registerLoadListener("ItemsAdder", ItemsAdderLoadListener::new);
+        this.registerLoadListener("Oraxen", OraxenLoadListener::new);
+    }
+
+    /**
+     * Register the load listener of a hook plugin if it is enabled and not registered yet.
+     * @param pluginName the name of the hook plugin
+     * @param listener the factory of the listener
+     */
+    private void registerLoadListener(String pluginName, Supplier<Listener> listener) {
+        PluginManager pluginManager = this.plugin.getServer().getPluginManager();
+        if (this.loadListeners.contains(pluginName) || !pluginManager.isPluginEnabled(pluginName)) {
+            return;
+        }
+        pluginManager.registerEvents(listener.get(), this.plugin);
+        this.loadListeners.add(pluginName);
+    }
+}
@@ -0,0 +1,214 @@
+package fr.traqueur.recipes.impl.hook;
+
+import fr.traqueur.recipes.api.hook.Hook;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class is used to register the hooks by plugin name, case-insensitively.
+ * The enablement of each hook is cached until a plugin is enabled or disabled.
+ * A generation number lets hook ingredients know when to resolve their item again.
+ * It is safe to register a hook while events are being handled.
+ */
+public final class HookRegistry {
+
+    /**
+     * The registered hooks, in registration order.
+     */
+    private static final List<Hook> HOOKS = new CopyOnWriteArrayList<>();
+
+    /**
+     * The view of the registered hooks, registering and unregistering the hooks added and removed through it.
+     */
+    private static final List<Hook> HOOKS_VIEW = new HookList();
+
+    /**
+     * The registered hooks indexed by lower-case plugin name.
+     */
+    private static final ConcurrentMap<String, Entry> HOOKS_BY_NAME = new ConcurrentHashMap<>();
+
+    /**
+     * The generation of the hooks, incremented each time a plugin or its items are (re)loaded.
+     */
+    private static final AtomicInteger GENERATION = new AtomicInteger();
+
+    static {
+        for (Hooks hook : Hooks.values()) {
+            register(hook);
+        }
+    }
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private HookRegistry() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Register a hook, replacing any hook registered for the same plugin name.
+     * @param hook the hook
+     */
+    public static void register(Hook hook) {
+        Entry previous = HOOKS_BY_NAME.put(hook.getPluginName().toLowerCase(Locale.ROOT), new Entry(hook));
+        if (previous != null) {
+            HOOKS.remove(previous.hook);
+        }
+        HOOKS.add(hook);
+    }
+
+    /**
+     * Unregister a hook.
+     * @param hook the hook
+     * @return true if the hook was registered
+     */
+    public static boolean unregister(Hook hook) {
+        String name = hook.getPluginName().toLowerCase(Locale.ROOT);
+        HOOKS_BY_NAME.computeIfPresent(name, (key, entry) -> entry.hook == hook ? null : entry);
+        return HOOKS.remove(hook);
+    }
+
+    /**
+     * Get the enabled hook of a plugin.
+     * @param pluginName the name of the plugin (case-insensitive)
+     * @return the hook, or null if no hook is registered for this plugin or if it is disabled
+     */
+    public static Hook getEnabled(String pluginName) {
+        Entry entry = HOOKS_BY_NAME.get(pluginName);
+        if (entry == null) {
+            entry = HOOKS_BY_NAME.get(pluginName.toLowerCase(Locale.ROOT));
+        }
+        return entry != null && entry.isEnabled() ? entry.hook : null;
+    }
+
+    /**
+     * Get the registered hooks.
+     * Adding a hook to the list registers it like {@link #register(Hook)}, at the end of the list whatever the index,
+     * and removing a hook unregisters it.
+     * @return a view of the hooks, in registration order
+     */
+    public static List<Hook> getHooks() {
+        return HOOKS_VIEW;
+    }
+
+    /**
+     * Get the current generation of the hooks.
+     * A value cached by a hook ingredient is stale once the generation changes.
+     * @return the generation
+     */
+    public static int generation() {
+        return GENERATION.get();
+    }
+
+    /**
+     * Forget the cached enablement of every hook and start a new generation.
+     * Called when a plugin is enabled or disabled, or when a hook plugin reloads its items.
+     */
+    public static void invalidate() {
+        for (Entry entry : HOOKS_BY_NAME.values()) {
+            entry.enabled = null;
+        }
+        GENERATION.incrementAndGet();
+    }
+
+    /**
+     * The view of the registered hooks, whose changes go through the registry.
+     */
+    private static final class HookList extends AbstractList<Hook> {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Hook get(int index) {
+            return HOOKS.get(index);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size() {
+            return HOOKS.size();
+        }
+
+        /**
+         * Register a hook, see {@link HookRegistry#register(Hook)}.
+         * @param index ignored, the hook is added at the end
+         * @param hook the hook
+         */
+        @Override
+        public void add(int index, Hook hook) {
+            register(hook);
+        }
+
+        /**
+         * Unregister the hook at an index.
+         * @param index the index of the hook
+         * @return the unregistered hook
+         */
+        @Override
+        public Hook remove(int index) {
+            Hook hook = HOOKS.get(index);
+            unregister(hook);
+            return hook;
+        }
+
+        /**
+         * Replace the hook at an index, unregistering it and registering the new one at the end.
+         * @param index the index of the hook
+         * @param hook the new hook
+         * @return the replaced hook
+         */
+        @Override
+        public Hook set(int index, Hook hook) {
+            Hook previous = HOOKS.get(index);
+            unregister(previous);
+            register(hook);
+            return previous;
+        }
+    }
+
+    /**
+     * A registered hook and its cached enablement.
+     */
+    private static final class Entry {
+
+        /**
+         * The hook.
+         */
+        private final Hook hook;
+
+        /**
+         * The cached enablement of the hook, null if unknown.
+         */
+        private volatile Boolean enabled;
+
+        /**
+         * Create a new entry.
+         * @param hook the hook
+         */
+        private Entry(Hook hook) {
+            this.hook = hook;
+        }
+
+        /**
+         * Check if the hook is enabled, computing it once until invalidated.
+         * @return true if the hook is enabled
+         */
+        private boolean isEnabled() {
+            Boolean enabled = this.enabled;
+            if (enabled == null) {
+                enabled = this.hook.isEnable();
+                this.enabled = enabled;
+            }
+            return enabled;
+        }
+    }
+}
@@ -2,21 +2,34 @@ package fr.traqueur.recipes.impl.hook.hooks;
 
 import dev.lone.itemsadder.api.CustomStack;
 import fr.traqueur.recipes.api.domains.Ingredient;
+import fr.traqueur.recipes.impl.debug.MemoryEstimator;
+import fr.traqueur.recipes.impl.hook.HookRegistry;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.RecipeChoice;
-import org.checkerframework.checker.units.qual.C;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.Objects;
 
 /**
  * This class is an implementation of the BaseIngredient class.
  * It is used to represent an ingredient that is an item from the ItemsAdder plugin.
+ * The item is resolved once and resolved again only when ItemsAdder reloads its items.
+ * Candidate items are matched by material and model, without asking ItemsAdder for each of them.
  */
 public class ItemsAdderIngredient extends Ingredient {
 
     /**
-     * The CustomStack object that represents the item from ItemsAdder.
+     * The id of the item from ItemsAdder.
      */
-
     private final String data;
+
+    /**
+     * The last resolution of the item, null until the item is first resolved.
+     */
+    private volatile Resolved resolved;
+
     /**
      * Constructor of the class.
      * @param data The id of the item from ItemsAdder.
@@ -40,9 +53,18 @@ public class ItemsAdderIngredient extends Ingredient {
      */
     @Override
     public boolean isSimilar(ItemStack ingredient) {
-        CustomStack item = CustomStack.byItemStack(ingredient);
-        if (item == null) return false;
-        return item.getNamespacedID().equals(this.getCustomStack().getNamespacedID());
+        if (ingredient == null) return false;
+        Resolved resolved = this.resolve();
+        if (resolved == null || ingredient.getType() != resolved.material()) return false;
+        if (resolved.customModelData() == null && resolved.itemModel() == null) {
+            // Nothing tells this item apart from the vanilla one: only ItemsAdder can.
+            CustomStack item = CustomStack.byItemStack(ingredient);
+            return item != null && item.getNamespacedID().equals(resolved.namespacedId());
+        }
+        if (!ingredient.hasItemMeta()) return false;
+        ItemMeta meta = ingredient.getItemMeta();
+        return Objects.equals(resolved.customModelData(), meta.hasCustomModelData() ? meta.getCustomModelData() : null)
+                && Objects.equals(resolved.itemModel(), meta.hasItemModel() ? meta.getItemModel() : null);
     }
 
     /**
@@ -50,19 +72,89 @@ public class ItemsAdderIngredient extends Ingredient {
      */
     @Override
     public RecipeChoice choice() {
-        return new RecipeChoice.MaterialChoice(this.getCustomStack().getItemStack().getType());
+        return new RecipeChoice.MaterialChoice(this.getResolved().material());
     }
 
-    private CustomStack getCustomStack() {
-        CustomStack customStack = CustomStack.getInstance(data);
-        if(customStack == null) {
+    /**
+     * Get the resolved item.
+     * @return the resolved item
+     * @throws IllegalArgumentException if the item is not registered in ItemsAdder
+     */
+    private Resolved getResolved() {
+        Resolved resolved = this.resolve();
+        if(resolved == null) {
             throw new IllegalArgumentException("The item " + data + " is not registered in ItemsAdder.");
         }
-        return customStack;
+        return resolved;
+    }
+
+    /**
+     * Resolve the item from ItemsAdder, reusing the last resolution while the hooks have not been reloaded.
+     * @return the resolved item, or null if the item is not registered in ItemsAdder
+     */
+    private Resolved resolve() {
+        int generation = HookRegistry.generation();
+        Resolved resolved = this.resolved;
+        if (resolved != null && resolved.generation() == generation) {
+            return resolved.namespacedId() == null ? null : resolved;
+        }
+        CustomStack customStack = CustomStack.getInstance(data);
+        if (customStack == null) {
+            // Remember the miss so unknown ids are not looked up again on every match.
+            this.resolved = new Resolved(generation, null, null, null, null);
+            return null;
+        }
+        ItemStack item = customStack.getItemStack();
+        ItemMeta meta = item.hasItemMeta() ? item.getItemMeta() : null;
+        resolved = new Resolved(generation, customStack.getNamespacedID(), item.getType(),
+                meta != null && meta.hasCustomModelData() ? meta.getCustomModelData() : null,
+                meta != null && meta.hasItemModel() ? meta.getItemModel() : null);
+        this.resolved = resolved;
+        return resolved;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long estimateSize(MemoryEstimator estimator) {
+        return estimator.object(4, 4) + estimator.string(this.data);
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ItemsAdderIngredient that = (ItemsAdderIngredient) o;
+        return data.equals(that.data) && Objects.equals(sign(), that.sign());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(data, sign());
+    }
+
+    /**
+     * Get the id of the item as written in the recipe.
+     * ItemsAdder is not asked, so it never fails, even if the item is not registered.
+     * @return the id of the item
+     */
     @Override
     public String toString() {
-        return this.getCustomStack().getNamespacedID();
+        return this.data;
+    }
+
+    /**
+     * The identity of an item resolved from ItemsAdder.
+     * Its model tells its stacks apart without asking ItemsAdder, as ItemsAdder gives each item its own model.
+     * A null namespaced id marks an item that was not registered in ItemsAdder at that generation.
+     * @param generation the generation of the hooks when the item was resolved
+     * @param namespacedId the namespaced id of the item, or null if the item was not found
+     * @param material the material of the item, or null if the item was not found
+     * @param customModelData the custom model data of the item, or null if it has none
+     * @param itemModel the item model of the item, or null if it has none
+     */
+    private record Resolved(int generation, String namespacedId, Material material, Integer customModelData,
+                            NamespacedKey itemModel) {
     }
 }
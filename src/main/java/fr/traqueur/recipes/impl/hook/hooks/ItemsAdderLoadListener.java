@@ -0,0 +1,28 @@
+package fr.traqueur.recipes.impl.hook.hooks;
+
+import dev.lone.itemsadder.api.Events.ItemsAdderLoadDataEvent;
+import fr.traqueur.recipes.impl.hook.HookRegistry;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+/**
+ * This class is used to refresh the ItemsAdder ingredients when ItemsAdder (re)loads its items.
+ */
+public class ItemsAdderLoadListener implements Listener {
+
+    /**
+     * Creates a new ItemsAdderLoadListener instance.
+     */
+    public ItemsAdderLoadListener() {
+    }
+
+    /**
+     * This method is called when ItemsAdder has loaded its items.
+     * @param event the event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLoadData(ItemsAdderLoadDataEvent event) {
+        HookRegistry.invalidate();
+    }
+}
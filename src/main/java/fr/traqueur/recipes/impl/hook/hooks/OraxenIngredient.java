@@ -1,23 +1,33 @@
 package fr.traqueur.recipes.impl.hook.hooks;
 
 import fr.traqueur.recipes.api.domains.Ingredient;
+import fr.traqueur.recipes.impl.debug.MemoryEstimator;
+import fr.traqueur.recipes.impl.hook.HookRegistry;
 import io.th0rgal.oraxen.api.OraxenItems;
 import org.bukkit.Material;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.RecipeChoice;
-import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.persistence.PersistentDataType;
 
+import java.util.Objects;
+
+
 /**
  * This class is an implementation of the BaseIngredient class.
  * It is used to represent an ingredient that is an item from the Oraxen plugin.
+ * The material of the item is resolved again only when Oraxen reloads its items.
  */
 public class OraxenIngredient extends Ingredient {
 
     /**
      * The Material object that represents the item from Oraxen.
      */
-    private final Material material;
+    private volatile Material material;
+    /**
+     * The generation of the hooks when the material was resolved.
+     */
+    private volatile int generation;
     /**
      * The id of the item from Oraxen.
      */
@@ -30,12 +40,12 @@ public class OraxenIngredient extends Ingredient {
      */
     public OraxenIngredient(String id, Character sign) {
         super(sign);
-        var builder = OraxenItems.getItemById(id);
-        if(builder == null) {
+        this.id = id;
+        this.generation = HookRegistry.generation();
+        this.material = resolveMaterial(id);
+        if(this.material == null) {
             throw new IllegalArgumentException("Oraxen item with id " + id + " not found");
         }
-        this.material = builder.build().getType();
-        this.id = id;
     }
 
     /**
@@ -46,25 +56,47 @@ public class OraxenIngredient extends Ingredient {
         this(id, null);
     }
 
+    /**
+     * Resolve the material of an item from Oraxen.
+     * @param id The id of the item from Oraxen.
+     * @return The material of the item, or null if the item is not found.
+     */
+    private static Material resolveMaterial(String id) {
+        var builder = OraxenItems.getItemById(id);
+        return builder == null ? null : builder.build().getType();
+    }
+
+    /**
+     * Get the material of the item, resolving it again if Oraxen has reloaded its items.
+     * The last known material is kept if the item is no longer found.
+     * @return The material of the item.
+     */
+    private Material getMaterial() {
+        int generation = HookRegistry.generation();
+        if (this.generation != generation) {
+            Material material = resolveMaterial(this.id);
+            if (material != null) {
+                this.material = material;
+            }
+            this.generation = generation;
+        }
+        return this.material;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public boolean isSimilar(ItemStack item) {
-        if (!item.hasItemMeta() || item.getItemMeta().getPersistentDataContainer().isEmpty()) {
+        if (item == null || item.getType() != this.getMaterial() || !item.hasItemMeta()) {
             return false;
         }
 
-        if(item.getType() != material) {
+        ItemMeta meta = item.getItemMeta();
+        if (meta == null) {
             return false;
         }
-
-        PersistentDataContainer container = item.getItemMeta().getPersistentDataContainer();
-        if(container.has(OraxenItems.ITEM_ID, PersistentDataType.STRING)) {
-            return container.getOrDefault(OraxenItems.ITEM_ID, PersistentDataType.STRING, "ERROR")
-                    .equals(id);
-        }
-        return false;
+        return id.equals(meta.getPersistentDataContainer().get(OraxenItems.ITEM_ID, PersistentDataType.STRING));
     }
 
     /**
@@ -72,7 +104,28 @@ public class OraxenIngredient extends Ingredient {
      */
     @Override
     public RecipeChoice choice() {
-        return new RecipeChoice.MaterialChoice(material);
+        return new RecipeChoice.MaterialChoice(this.getMaterial());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long estimateSize(MemoryEstimator estimator) {
+        return estimator.object(4, 4) + estimator.string(this.id);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OraxenIngredient that = (OraxenIngredient) o;
+        return id.equals(that.id) && Objects.equals(sign(), that.sign());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, sign());
     }
 
     @Override
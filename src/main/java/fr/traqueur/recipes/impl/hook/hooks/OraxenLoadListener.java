@@ -0,0 +1,28 @@
+package fr.traqueur.recipes.impl.hook.hooks;
+
+import fr.traqueur.recipes.impl.hook.HookRegistry;
+import io.th0rgal.oraxen.api.events.OraxenItemsLoadedEvent;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+/**
+ * This class is used to refresh the Oraxen ingredients when Oraxen (re)loads its items.
+ */
+public class OraxenLoadListener implements Listener {
+
+    /**
+     * Creates a new OraxenLoadListener instance.
+     */
+    public OraxenLoadListener() {
+    }
+
+    /**
+     * This method is called when Oraxen has loaded its items.
+     * @param event the event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onItemsLoaded(OraxenItemsLoadedEvent event) {
+        HookRegistry.invalidate();
+    }
+}
@@ -0,0 +1,212 @@
+package fr.traqueur.recipes.impl.loader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * This class is a binary cache of the validated recipe configurations of each file.
+ * An entry is used only if the size and the content hash of its file are unchanged,
+ * stale entries are replaced as the files are parsed again.
+ */
+public final class RecipeCache {
+
+    /**
+     * The magic number of the cache files.
+     */
+    private static final int MAGIC = 0x52415043;
+
+    /**
+     * The version of the format of the cache files, incremented on each change of the format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The file of the cache.
+     */
+    private final Path file;
+
+    /**
+     * The entries of the cache by absolute path of their recipe file.
+     */
+    private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new cache stored in a file.
+     * @param file the file of the cache
+     */
+    public RecipeCache(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Read the cache file, forgetting the current entries.
+     * A missing, outdated or corrupted file gives an empty cache.
+     * @throws IOException if the file can't be read
+     */
+    public void read() throws IOException {
+        this.entries.clear();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.file)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                return;
+            }
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                Path path = Path.of(RecipeSpec.readString(input));
+                long size = input.readLong();
+                long modified = input.readLong();
+                long hash = input.readLong();
+                int recipes = input.readInt();
+                List<RecipeSpec> specs = new ArrayList<>(recipes);
+                for (int j = 0; j < recipes; j++) {
+                    specs.add(RecipeSpec.read(input));
+                }
+                this.entries.put(path, new Entry(size, modified, hash, List.copyOf(specs)));
+            }
+        } catch (NoSuchFileException ignored) {
+            // No cache yet.
+        } catch (IOException | RuntimeException exception) {
+            this.entries.clear();
+            throw new IOException("Corrupted recipe cache " + this.file + ": " + exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * Write the cache file.
+     * The file is replaced atomically so a crash never leaves a partial cache.
+     * @throws IOException if the file can't be written
+     */
+    public void write() throws IOException {
+        Path parent = this.file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temporary = Files.createTempFile(parent, "recipes", ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                Map<Path, Entry> entries = Map.copyOf(this.entries);
+                output.writeInt(entries.size());
+                for (Map.Entry<Path, Entry> entry : entries.entrySet()) {
+                    RecipeSpec.writeString(output, entry.getKey().toString());
+                    output.writeLong(entry.getValue().size());
+                    output.writeLong(entry.getValue().modified());
+                    output.writeLong(entry.getValue().hash());
+                    output.writeInt(entry.getValue().recipes().size());
+                    for (RecipeSpec spec : entry.getValue().recipes()) {
+                        spec.write(output);
+                    }
+                }
+            }
+            Files.move(temporary, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Check if a file may be cached, before hashing its content.
+     * @param path the absolute path of the file
+     * @param size the size of the file, in bytes
+     * @return true if an entry of this size is cached for the file
+     */
+    public boolean mayContain(Path path, long size) {
+        Entry entry = this.entries.get(path);
+        return entry != null && entry.size() == size;
+    }
+
+    /**
+     * Get the cached recipes of a file if its content didn't change.
+     * @param path the absolute path of the file
+     * @param size the size of the file, in bytes
+     * @param hash the hash of the content of the file, see {@link #hash(Path)}
+     * @param modified the last modification time of the file, in milliseconds
+     * @return the cached recipes, or null if the file is not cached or changed
+     */
+    public List<RecipeSpec> get(Path path, long size, long hash, long modified) {
+        Entry entry = this.entries.get(path);
+        if (entry == null || entry.size() != size || entry.hash() != hash) {
+            return null;
+        }
+        if (entry.modified() != modified) {
+            // Same content, only touched: keep the entry up to date.
+            this.entries.put(path, new Entry(entry.size(), modified, entry.hash(), entry.recipes()));
+        }
+        return entry.recipes();
+    }
+
+    /**
+     * Cache the recipes of a file.
+     * @param path the absolute path of the file
+     * @param size the size of the file, in bytes
+     * @param hash the hash of the content of the file
+     * @param modified the last modification time of the file, in milliseconds
+     * @param recipes the recipes of the file
+     */
+    public void put(Path path, long size, long hash, long modified, List<RecipeSpec> recipes) {
+        this.entries.put(path, new Entry(size, modified, hash, List.copyOf(recipes)));
+    }
+
+    /**
+     * Forget the cached recipes of a file.
+     * @param path the absolute path of the file
+     */
+    public void remove(Path path) {
+        this.entries.remove(path);
+    }
+
+    /**
+     * Forget the cached recipes of every file but the given ones.
+     * @param paths the absolute paths of the files to keep
+     */
+    public void retainAll(Collection<Path> paths) {
+        this.entries.keySet().retainAll(paths);
+    }
+
+    /**
+     * Compute the hash of the content of a file, reading it in chunks.
+     * @param file the file
+     * @return the hash
+     * @throws IOException if the file can't be read
+     */
+    public static long hash(Path file) throws IOException {
+        try (CheckedInputStream input = open(file)) {
+            input.transferTo(OutputStream.nullOutputStream());
+            return input.getChecksum().getValue();
+        }
+    }
+
+    /**
+     * Open a file, computing the hash of its content as it is read.
+     * Once the whole file is read, the checksum of the stream is the hash of {@link #hash(Path)}.
+     * @param file the file
+     * @return the stream of the file
+     * @throws IOException if the file can't be opened
+     */
+    public static CheckedInputStream open(Path file) throws IOException {
+        return new CheckedInputStream(Files.newInputStream(file), new CRC32C());
+    }
+
+    /**
+     * The cached recipes of a file.
+     * @param size the size of the file, in bytes
+     * @param modified the last modification time of the file, in milliseconds
+     * @param hash the hash of the content of the file
+     * @param recipes the recipes of the file
+     */
+    private record Entry(long size, long modified, long hash, List<RecipeSpec> recipes) {
+    }
+}
@@ -0,0 +1,158 @@
+package fr.traqueur.recipes.impl.loader;
+
+import fr.traqueur.recipes.impl.domains.recipes.RecipeConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * This class reads the recipes of a YAML file, one document at a time.
+ * A document holds either a single recipe, with a top-level {@code type} key,
+ * or several recipes under top-level keys, each key being the name of its recipe.
+ * A single-recipe document is named after the file, or after the file and its index after the first document,
+ * unless it has a {@code name} key.
+ * Reading a file only involves YAML and can run on any thread, while validating its recipes
+ * parses their ingredients and must run where the server and the hooks can be read.
+ */
+public final class RecipeFileParser {
+
+    /**
+     * The key of the type of a recipe.
+     */
+    private static final String TYPE = "type";
+
+    /**
+     * The key of the name of a single-recipe document.
+     */
+    private static final String NAME = "name";
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private RecipeFileParser() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Read and validate the recipes of a file.
+     * An invalid recipe is reported and skipped, a YAML error stops the reading of the file.
+     * @param fileName the name of the file, without extension
+     * @param reader the content of the file
+     * @param errors the consumer of the errors, given the name of the recipe (or of the file) and the error
+     * @return the recipes read, in the order of the file
+     * @see #read(String, Reader, Consumer, BiConsumer)
+     */
+    public static List<RecipeConfiguration> parse(String fileName, Reader reader, BiConsumer<String, RuntimeException> errors) {
+        List<RecipeConfiguration> recipes = new ArrayList<>();
+        read(fileName, reader, source -> {
+            try {
+                recipes.add(source.configure());
+            } catch (RuntimeException exception) {
+                errors.accept(source.name(), exception);
+            }
+        }, errors);
+        return recipes;
+    }
+
+    /**
+     * Read the recipes of a file, without validating them.
+     * The documents are parsed one at a time: the recipes of a document are given to the consumer
+     * before the next document is parsed, so only one document is held in memory.
+     * Each recipe has its own configuration, holding only its section of the document.
+     * A YAML error is reported and stops the reading of the file.
+     * @param fileName the name of the file, without extension
+     * @param reader the content of the file
+     * @param sources the consumer of the recipes read, in the order of the file
+     * @param errors the consumer of the errors, given the name of the file and the error
+     */
+    public static void read(String fileName, Reader reader, Consumer<Source> sources, BiConsumer<String, RuntimeException> errors) {
+        LoaderOptions options = new LoaderOptions();
+        options.setCodePointLimit(Integer.MAX_VALUE);
+        options.setMaxAliasesForCollections(Integer.MAX_VALUE);
+        Yaml yaml = new Yaml(new SafeConstructor(options));
+
+        int index = 0;
+        try {
+            for (Object document : yaml.loadAll(reader)) {
+                int current = index++;
+                if (document == null) {
+                    continue;
+                }
+                if (!(document instanceof Map<?, ?> map)) {
+                    errors.accept(fileName, new IllegalArgumentException("The document " + current + " isn't a map."));
+                    continue;
+                }
+                if (map.containsKey(TYPE)) {
+                    YamlConfiguration configuration = toConfiguration(map);
+                    String name = configuration.getString(NAME, current == 0 ? fileName : fileName + "_" + current);
+                    sources.accept(new Source(name, "", configuration));
+                    continue;
+                }
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    String key = String.valueOf(entry.getKey());
+                    // A key that is not a section has no type, its recipe is reported as invalid.
+                    YamlConfiguration configuration = entry.getValue() instanceof Map<?, ?> section
+                            ? toConfiguration(section)
+                            : new YamlConfiguration();
+                    sources.accept(new Source(key, "", configuration));
+                }
+            }
+        } catch (YAMLException exception) {
+            errors.accept(fileName, exception);
+        }
+    }
+
+    /**
+     * Convert a YAML document to a configuration.
+     * @param document the document
+     * @return the configuration
+     */
+    private static YamlConfiguration toConfiguration(Map<?, ?> document) {
+        YamlConfiguration configuration = new YamlConfiguration();
+        for (Map.Entry<?, ?> entry : document.entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            if (entry.getValue() instanceof Map<?, ?> section) {
+                configuration.createSection(key, section);
+            } else {
+                configuration.set(key, entry.getValue());
+            }
+        }
+        return configuration;
+    }
+
+    /**
+     * A recipe read from a document, not validated yet.
+     * @param name the name of the recipe
+     * @param path the path of the recipe in its configuration
+     * @param configuration the configuration holding the recipe
+     */
+    public record Source(String name, String path, YamlConfiguration configuration) {
+
+        /**
+         * Validate the recipe and parse its ingredients.
+         * @return the recipe
+         * @throws IllegalArgumentException if the recipe is invalid
+         */
+        public RecipeConfiguration configure() {
+            return new RecipeConfiguration(this.name, this.path, this.configuration);
+        }
+
+        /**
+         * Validate the recipe without parsing its ingredients, see {@link RecipeConfiguration#toSpec(String, String, YamlConfiguration)}.
+         * @return the specification of the recipe
+         * @throws IllegalArgumentException if the recipe is invalid
+         */
+        public RecipeSpec toSpec() {
+            return RecipeConfiguration.toSpec(this.name, this.path, this.configuration);
+        }
+    }
+}
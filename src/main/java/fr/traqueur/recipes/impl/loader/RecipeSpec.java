@@ -0,0 +1,147 @@
+package fr.traqueur.recipes.impl.loader;
+
+import fr.traqueur.recipes.api.RecipeType;
+import fr.traqueur.recipes.api.Util;
+import fr.traqueur.recipes.api.domains.Ingredient;
+import fr.traqueur.recipes.impl.domains.ItemRecipe;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This record represents a validated recipe configuration, as stored in the {@link RecipeCache}.
+ * Building the recipe only parses the ingredients, the configuration is not read nor validated again.
+ * @param name the name of the recipe
+ * @param type the type of the recipe
+ * @param group the group of the recipe
+ * @param category the category of the recipe
+ * @param result the result of the recipe
+ * @param amount the amount of the result
+ * @param pattern the pattern of the recipe, or null
+ * @param cookingTime the cooking time of the recipe
+ * @param experience the experience of the recipe
+ * @param priority the priority of the recipe
+ * @param ingredients the ingredients of the recipe
+ */
+public record RecipeSpec(String name, RecipeType type, String group, String category, String result, int amount,
+                         String[] pattern, int cookingTime, float experience, int priority,
+                         List<IngredientSpec> ingredients) {
+
+    /**
+     * Build the recipe.
+     * @return the recipe
+     * @throws IllegalArgumentException if an ingredient can't be parsed anymore
+     */
+    public ItemRecipe build() {
+        Ingredient[] ingredients = new Ingredient[this.ingredients.size()];
+        for (int i = 0; i < ingredients.length; i++) {
+            IngredientSpec ingredient = this.ingredients.get(i);
+            ingredients[i] = Util.parseIngredient(ingredient.item(), ingredient.sign(), ingredient.strict());
+        }
+        return new ItemRecipe(name, group, category, type, result, amount, ingredients,
+                pattern, cookingTime, experience, priority);
+    }
+
+    /**
+     * Write the recipe.
+     * @param output the output
+     * @throws IOException if the output can't be written
+     */
+    void write(DataOutput output) throws IOException {
+        writeString(output, name);
+        output.writeByte(type.ordinal());
+        writeString(output, group);
+        writeString(output, category);
+        writeString(output, result);
+        output.writeInt(amount);
+        output.writeByte(pattern == null ? -1 : pattern.length);
+        if (pattern != null) {
+            for (String row : pattern) {
+                writeString(output, row);
+            }
+        }
+        output.writeInt(cookingTime);
+        output.writeFloat(experience);
+        output.writeInt(priority);
+        output.writeShort(ingredients.size());
+        for (IngredientSpec ingredient : ingredients) {
+            writeString(output, ingredient.item());
+            output.writeChar(ingredient.sign() == null ? 0 : ingredient.sign());
+            output.writeBoolean(ingredient.sign() != null);
+            output.writeBoolean(ingredient.strict());
+        }
+    }
+
+    /**
+     * Read a recipe.
+     * @param input the input
+     * @return the recipe
+     * @throws IOException if the input can't be read
+     */
+    static RecipeSpec read(DataInput input) throws IOException {
+        String name = readString(input);
+        RecipeType type = RecipeType.values()[input.readByte()];
+        String group = readString(input);
+        String category = readString(input);
+        String result = readString(input);
+        int amount = input.readInt();
+        int rows = input.readByte();
+        String[] pattern = null;
+        if (rows >= 0) {
+            pattern = new String[rows];
+            for (int i = 0; i < rows; i++) {
+                pattern[i] = readString(input);
+            }
+        }
+        int cookingTime = input.readInt();
+        float experience = input.readFloat();
+        int priority = input.readInt();
+        int count = input.readShort();
+        List<IngredientSpec> ingredients = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String item = readString(input);
+            char sign = input.readChar();
+            boolean hasSign = input.readBoolean();
+            ingredients.add(new IngredientSpec(item, hasSign ? sign : null, input.readBoolean()));
+        }
+        return new RecipeSpec(name, type, group, category, result, amount, pattern, cookingTime, experience, priority,
+                List.copyOf(ingredients));
+    }
+
+    /**
+     * Write a string of any length as UTF-8.
+     * @param output the output
+     * @param value the string
+     * @throws IOException if the output can't be written
+     */
+    static void writeString(DataOutput output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Read a string written by {@link #writeString(DataOutput, String)}.
+     * @param input the input
+     * @return the string
+     * @throws IOException if the input can't be read
+     */
+    static String readString(DataInput input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * This record represents an ingredient of a recipe configuration.
+     * @param item the item of the ingredient, as written in the configuration
+     * @param sign the sign of the ingredient, or null
+     * @param strict if the ingredient is strict
+     */
+    public record IngredientSpec(String item, Character sign, boolean strict) {
+    }
+}
@@ -0,0 +1,258 @@
+package fr.traqueur.recipes.impl.loader;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * This class watches recipe folders and files for changes on a daemon thread.
+ * Bursts of changes are coalesced: the changed files are reported once no change happened during the debounce delay.
+ */
+public final class RecipeWatcher implements Runnable {
+
+    /**
+     * The extension of the recipe files.
+     */
+    private static final String EXTENSION = ".yml";
+
+    /**
+     * The service notifying the changes.
+     */
+    private final WatchService service;
+
+    /**
+     * The watched directories by their watch key.
+     */
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+
+    /**
+     * The folders watched recursively.
+     */
+    private final Set<Path> folders = new HashSet<>();
+
+    /**
+     * The files watched individually.
+     */
+    private final Set<Path> files = new HashSet<>();
+
+    /**
+     * The time without change before reporting the changed files, in milliseconds.
+     */
+    private final long debounceMillis;
+
+    /**
+     * The consumer of the changed files, given null when the changes are unknown and everything must be reloaded.
+     */
+    private final Consumer<Set<Path>> listener;
+
+    /**
+     * The logger of the plugin.
+     */
+    private final Logger logger;
+
+    /**
+     * The thread running the watcher.
+     */
+    private final Thread thread;
+
+    /**
+     * Create a new watcher.
+     * @param folders the folders to watch recursively
+     * @param files the files to watch individually
+     * @param debounceMillis the time without change before reporting the changed files, in milliseconds
+     * @param listener the consumer of the changed files, given null when everything must be reloaded
+     * @param logger the logger of the plugin
+     * @throws IOException if the folders can't be watched
+     */
+    public RecipeWatcher(Collection<Path> folders, Collection<Path> files, long debounceMillis,
+                         Consumer<Set<Path>> listener, Logger logger) throws IOException {
+        this.service = FileSystems.getDefault().newWatchService();
+        this.debounceMillis = debounceMillis;
+        this.listener = listener;
+        this.logger = logger;
+        try {
+            for (Path folder : folders) {
+                Path root = folder.toAbsolutePath().normalize();
+                this.folders.add(root);
+                this.registerTree(root);
+            }
+            for (Path file : files) {
+                Path path = file.toAbsolutePath().normalize();
+                this.files.add(path);
+                this.register(path.getParent());
+            }
+        } catch (IOException exception) {
+            this.service.close();
+            throw exception;
+        }
+        this.thread = new Thread(this, "RecipesAPI-Watcher");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Start watching.
+     */
+    public void start() {
+        this.thread.start();
+    }
+
+    /**
+     * Stop watching.
+     */
+    public void stop() {
+        try {
+            this.service.close();
+        } catch (IOException exception) {
+            this.logger.warning("Could not close the recipe watcher: " + exception.getMessage());
+        }
+        this.thread.interrupt();
+    }
+
+    /**
+     * Wait for changes and report them once they are settled.
+     */
+    @Override
+    public void run() {
+        Set<Path> changed = new LinkedHashSet<>();
+        boolean overflow = false;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = changed.isEmpty() && !overflow
+                        ? this.service.take()
+                        : this.service.poll(this.debounceMillis, TimeUnit.MILLISECONDS);
+                if (key == null) {
+                    // No change during the debounce delay: the burst is over.
+                    this.report(overflow ? null : Set.copyOf(changed));
+                    changed.clear();
+                    overflow = false;
+                    continue;
+                }
+                overflow |= this.collect(key, changed);
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ignored) {
+            // The watcher was stopped.
+        }
+    }
+
+    /**
+     * Collect the changed recipe files of a watch key.
+     * @param key the watch key
+     * @param changed the set to add the changed files to
+     * @return true if some changes were lost
+     */
+    private boolean collect(WatchKey key, Set<Path> changed) {
+        boolean overflow = false;
+        Path directory = this.directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                overflow = true;
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path) && this.isInFolder(path)) {
+                // A new sub-folder: watch it and report the files it already contains.
+                try {
+                    this.registerTree(path);
+                    try (Stream<Path> stream = Files.walk(path)) {
+                        stream.filter(Files::isRegularFile).filter(this::isWatched).forEach(changed::add);
+                    }
+                } catch (IOException exception) {
+                    this.logger.warning("Could not watch folder " + path + ": " + exception.getMessage());
+                }
+                continue;
+            }
+            if (this.isWatched(path)) {
+                changed.add(path);
+            }
+        }
+        if (!key.reset()) {
+            this.directories.remove(key);
+        }
+        return overflow;
+    }
+
+    /**
+     * Report changed files to the listener, logging its errors.
+     * @param changed the changed files, or null if everything must be reloaded
+     */
+    private void report(Set<Path> changed) {
+        try {
+            this.listener.accept(changed);
+        } catch (RuntimeException exception) {
+            this.logger.severe("Could not reload the changed recipes: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Check if a path is a watched recipe file.
+     * @param path the path
+     * @return true if the path is a recipe file of a watched folder or a watched file
+     */
+    private boolean isWatched(Path path) {
+        if (this.files.contains(path)) {
+            return true;
+        }
+        return path.getFileName().toString().endsWith(EXTENSION) && this.isInFolder(path);
+    }
+
+    /**
+     * Check if a path is inside a folder watched recursively.
+     * @param path the path
+     * @return true if the path is inside a watched folder
+     */
+    private boolean isInFolder(Path path) {
+        for (Path folder : this.folders) {
+            if (path.startsWith(folder)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Watch a directory and all its sub-directories.
+     * @param root the directory
+     * @throws IOException if a directory can't be watched
+     */
+    private void registerTree(Path root) throws IOException {
+        try (Stream<Path> stream = Files.walk(root)) {
+            for (Path directory : (Iterable<Path>) stream.filter(Files::isDirectory)::iterator) {
+                this.register(directory);
+            }
+        }
+    }
+
+    /**
+     * Watch a directory.
+     * @param directory the directory
+     * @throws IOException if the directory can't be watched
+     */
+    private void register(Path directory) throws IOException {
+        if (this.directories.containsValue(directory)) {
+            return;
+        }
+        WatchKey key = directory.register(this.service,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        this.directories.put(key, directory);
+    }
+}
@@ -0,0 +1,166 @@
+package fr.traqueur.recipes.impl.matcher;
+
+import fr.traqueur.recipes.impl.domains.ItemRecipe;
+import org.bukkit.Material;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * This class indexes recipes by the materials accepted by one of their ingredients.
+ * Looking up the candidates for an item is a single array access.
+ * An index is immutable: adding or removing recipes derives a new index sharing the untouched materials.
+ */
+public final class MaterialIndex {
+
+    /**
+     * The candidates of a material accepted by no recipe.
+     */
+    private static final ItemRecipe[] NONE = new ItemRecipe[0];
+
+    /**
+     * For each material ordinal, the recipes accepting it, in registration order.
+     */
+    private final ItemRecipe[][] recipesByMaterial;
+
+    /**
+     * The index of the ingredient used as key.
+     */
+    private final int slot;
+
+    /**
+     * Build the index of recipes.
+     * @param recipes the recipes, in registration order
+     * @param slot the index of the ingredient used as key
+     */
+    @SuppressWarnings("unchecked")
+    public MaterialIndex(Collection<ItemRecipe> recipes, int slot) {
+        int materials = Material.values().length;
+        List<ItemRecipe>[] grouped = new List[materials];
+        for (ItemRecipe recipe : recipes) {
+            MaterialSet accepted = accepted(recipe, slot);
+            for (int ordinal = accepted.nextOrdinal(0); ordinal >= 0; ordinal = accepted.nextOrdinal(ordinal + 1)) {
+                if (grouped[ordinal] == null) {
+                    grouped[ordinal] = new ArrayList<>();
+                }
+                grouped[ordinal].add(recipe);
+            }
+        }
+
+        this.recipesByMaterial = new ItemRecipe[materials][];
+        for (int ordinal = 0; ordinal < materials; ordinal++) {
+            this.recipesByMaterial[ordinal] = grouped[ordinal] == null ? NONE : grouped[ordinal].toArray(NONE);
+        }
+        this.slot = slot;
+    }
+
+    /**
+     * Create an index from the candidates of each material.
+     * @param recipesByMaterial the candidates of each material, owned by the index
+     * @param slot the index of the ingredient used as key
+     */
+    private MaterialIndex(ItemRecipe[][] recipesByMaterial, int slot) {
+        this.recipesByMaterial = recipesByMaterial;
+        this.slot = slot;
+    }
+
+    /**
+     * Derive the index of an updated list of recipes from the index of the previous list.
+     * Only the materials accepted by the added or removed recipes are copied; the index is shared otherwise.
+     * @param previous the recipes indexed by this index, in registration order
+     * @param recipes the updated recipes, in registration order
+     * @return the derived index, or null if the recipes were reordered or replaced and the index must be rebuilt
+     */
+    public MaterialIndex derive(List<ItemRecipe> previous, List<ItemRecipe> recipes) {
+        int common = 0;
+        while (common < previous.size() && common < recipes.size() && previous.get(common) == recipes.get(common)) {
+            common++;
+        }
+        if (common == previous.size()) {
+            // Recipes appended at the end keep the registration order of each material.
+            return this.with(recipes.subList(common, recipes.size()));
+        }
+        // Otherwise the recipes must be the previous ones with some removed.
+        List<ItemRecipe> removed = new ArrayList<>(previous.size() - recipes.size());
+        int next = common;
+        for (int i = common; i < previous.size(); i++) {
+            ItemRecipe recipe = previous.get(i);
+            if (next < recipes.size() && recipes.get(next) == recipe) {
+                next++;
+            } else {
+                removed.add(recipe);
+            }
+        }
+        return next == recipes.size() ? this.without(removed) : null;
+    }
+
+    /**
+     * Derive an index with recipes appended.
+     * @param added the recipes to append, in registration order
+     * @return the new index
+     */
+    private MaterialIndex with(List<ItemRecipe> added) {
+        if (added.isEmpty()) {
+            return this;
+        }
+        ItemRecipe[][] recipesByMaterial = this.recipesByMaterial.clone();
+        for (ItemRecipe recipe : added) {
+            MaterialSet accepted = accepted(recipe, this.slot);
+            for (int ordinal = accepted.nextOrdinal(0); ordinal >= 0; ordinal = accepted.nextOrdinal(ordinal + 1)) {
+                ItemRecipe[] candidates = recipesByMaterial[ordinal];
+                ItemRecipe[] grown = Arrays.copyOf(candidates, candidates.length + 1);
+                grown[candidates.length] = recipe;
+                recipesByMaterial[ordinal] = grown;
+            }
+        }
+        return new MaterialIndex(recipesByMaterial, this.slot);
+    }
+
+    /**
+     * Derive an index with recipes removed.
+     * @param removed the recipes to remove
+     * @return the new index
+     */
+    private MaterialIndex without(List<ItemRecipe> removed) {
+        if (removed.isEmpty()) {
+            return this;
+        }
+        ItemRecipe[][] recipesByMaterial = this.recipesByMaterial.clone();
+        for (ItemRecipe recipe : removed) {
+            MaterialSet accepted = accepted(recipe, this.slot);
+            for (int ordinal = accepted.nextOrdinal(0); ordinal >= 0; ordinal = accepted.nextOrdinal(ordinal + 1)) {
+                ItemRecipe[] candidates = recipesByMaterial[ordinal];
+                int kept = 0;
+                ItemRecipe[] filtered = new ItemRecipe[candidates.length];
+                for (ItemRecipe candidate : candidates) {
+                    if (candidate != recipe) {
+                        filtered[kept++] = candidate;
+                    }
+                }
+                recipesByMaterial[ordinal] = kept == 0 ? NONE : Arrays.copyOf(filtered, kept);
+            }
+        }
+        return new MaterialIndex(recipesByMaterial, this.slot);
+    }
+
+    /**
+     * Get the materials accepted by the indexed ingredient of a recipe.
+     * @param recipe the recipe
+     * @param slot the index of the ingredient used as key
+     * @return the accepted materials, empty if the recipe has no such ingredient
+     */
+    private static MaterialSet accepted(ItemRecipe recipe, int slot) {
+        return recipe.ingredients().length <= slot ? MaterialSet.empty() : MaterialSet.of(recipe.ingredients()[slot]);
+    }
+
+    /**
+     * Get the recipes whose indexed ingredient accepts a material.
+     * @param material the material
+     * @return the candidate recipes, in registration order; must not be modified
+     */
+    public ItemRecipe[] get(Material material) {
+        return this.recipesByMaterial[material.ordinal()];
+    }
+}
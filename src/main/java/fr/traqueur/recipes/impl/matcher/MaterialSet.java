@@ -0,0 +1,231 @@
+package fr.traqueur.recipes.impl.matcher;
+
+import fr.traqueur.recipes.api.domains.Ingredient;
+import fr.traqueur.recipes.impl.domains.ingredients.TagIngredient;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.RecipeChoice;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * This class represents an immutable set of materials stored as a bitset of their ordinals.
+ * Membership is a single bit test.
+ */
+public final class MaterialSet {
+
+    /**
+     * The number of materials known by the server.
+     */
+    private static final int MATERIALS = Material.values().length;
+
+    /**
+     * The set containing every material.
+     */
+    private static final MaterialSet ALL = createAll();
+
+    /**
+     * The set containing no material.
+     */
+    private static final MaterialSet EMPTY = new MaterialSet(new long[words()]);
+
+    /**
+     * The bits of the set, one per material ordinal.
+     */
+    private final long[] words;
+
+    /**
+     * The number of materials in the set.
+     */
+    private final int size;
+
+    /**
+     * Create a new set from its bits.
+     * @param words the bits of the set
+     */
+    private MaterialSet(long[] words) {
+        this.words = words;
+        int size = 0;
+        for (long word : words) {
+            size += Long.bitCount(word);
+        }
+        this.size = size;
+    }
+
+    /**
+     * Get the set containing every material.
+     * @return the set of all materials
+     */
+    public static MaterialSet all() {
+        return ALL;
+    }
+
+    /**
+     * Get the set containing no material.
+     * @return the empty set
+     */
+    public static MaterialSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Create a set from materials.
+     * @param materials the materials
+     * @return the set
+     */
+    public static MaterialSet of(Collection<Material> materials) {
+        long[] words = new long[words()];
+        for (Material material : materials) {
+            int ordinal = material.ordinal();
+            words[ordinal >>> 6] |= 1L << ordinal;
+        }
+        return new MaterialSet(words);
+    }
+
+    /**
+     * Create the set of the materials a recipe choice can accept.
+     * Unknown choices accept every material.
+     * @param choice the recipe choice
+     * @return the set
+     */
+    public static MaterialSet of(RecipeChoice choice) {
+        if (choice instanceof RecipeChoice.MaterialChoice materialChoice) {
+            return of(materialChoice.getChoices());
+        }
+        if (choice instanceof RecipeChoice.ExactChoice exactChoice) {
+            long[] words = new long[words()];
+            for (ItemStack stack : exactChoice.getChoices()) {
+                int ordinal = stack.getType().ordinal();
+                words[ordinal >>> 6] |= 1L << ordinal;
+            }
+            return new MaterialSet(words);
+        }
+        return ALL;
+    }
+
+    /**
+     * Create the set of the materials an ingredient can accept.
+     * If the choice of the ingredient can't be resolved yet, every material is accepted
+     * and the ingredient alone decides.
+     * Tag ingredients accept the current members of their tag: the sets computed here are kept
+     * by the compiled recipes and the indexes, which are rebuilt when the server reloads its tags.
+     * @param ingredient the ingredient
+     * @return the set
+     */
+    public static MaterialSet of(Ingredient ingredient) {
+        if (ingredient instanceof TagIngredient tagIngredient) {
+            return tagIngredient.members();
+        }
+        try {
+            return of(ingredient.choice());
+        } catch (RuntimeException exception) {
+            return ALL;
+        }
+    }
+
+    /**
+     * Create the union of sets.
+     * @param sets the sets
+     * @return the set of the materials contained in any of the sets
+     */
+    public static MaterialSet union(MaterialSet... sets) {
+        long[] words = new long[words()];
+        for (MaterialSet set : sets) {
+            for (int i = 0; i < words.length; i++) {
+                words[i] |= set.words[i];
+            }
+        }
+        return new MaterialSet(words);
+    }
+
+    /**
+     * Create the set containing every material.
+     * @return the set of all materials
+     */
+    private static MaterialSet createAll() {
+        long[] words = new long[words()];
+        Arrays.fill(words, -1L);
+        int unused = words.length * 64 - MATERIALS;
+        if (unused > 0) {
+            words[words.length - 1] = -1L >>> unused;
+        }
+        return new MaterialSet(words);
+    }
+
+    /**
+     * Get the number of words needed to store every material.
+     * @return the number of words
+     */
+    private static int words() {
+        return (MATERIALS + 63) >>> 6;
+    }
+
+    /**
+     * Check if the set contains a material.
+     * @param material the material
+     * @return true if the material is in the set
+     */
+    public boolean contains(Material material) {
+        return this.contains(material.ordinal());
+    }
+
+    /**
+     * Check if the set contains a material ordinal.
+     * @param ordinal the ordinal of the material
+     * @return true if the material is in the set
+     */
+    public boolean contains(int ordinal) {
+        return (this.words[ordinal >>> 6] & (1L << ordinal)) != 0;
+    }
+
+    /**
+     * Get the first material ordinal of the set at or after an ordinal.
+     * @param from the ordinal to start from
+     * @return the next ordinal in the set, or -1 if there is none
+     */
+    public int nextOrdinal(int from) {
+        int index = from >>> 6;
+        if (index >= this.words.length) {
+            return -1;
+        }
+        long word = this.words[index] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return index * 64 + Long.numberOfTrailingZeros(word);
+            }
+            if (++index == this.words.length) {
+                return -1;
+            }
+            word = this.words[index];
+        }
+    }
+
+    /**
+     * Check if the set contains every material.
+     * @return true if no material is excluded
+     */
+    public boolean isAll() {
+        return this.size == MATERIALS;
+    }
+
+    /**
+     * Get the number of materials in the set.
+     * @return the size of the set
+     */
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MaterialSet that)) return false;
+        return Arrays.equals(this.words, that.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(this.words);
+    }
+}
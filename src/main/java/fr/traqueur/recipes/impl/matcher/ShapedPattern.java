@@ -0,0 +1,282 @@
+package fr.traqueur.recipes.impl.matcher;
+
+import fr.traqueur.recipes.api.domains.Ingredient;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * This class represents a shaped pattern compiled once into a flat per-cell ingredient table.
+ * The pattern is trimmed to the bounding box of its ingredients and can be matched
+ * against 2x2 and 3x3 crafting grids at any offset, mirrored or not, like vanilla does.
+ */
+public final class ShapedPattern {
+
+    /**
+     * The bit used in a packed placement to flag a mirrored placement.
+     */
+    private static final int MIRRORED = 1 << 4;
+
+    /**
+     * The shift of the grid occupancy mask in a packed placement.
+     */
+    private static final int MASK_SHIFT = 5;
+
+    /**
+     * The ingredient of each cell of the bounding box, row by row.
+     */
+    private final Ingredient[] cells;
+
+    /**
+     * The bitmask of the cells of the bounding box that require an ingredient.
+     */
+    private final int shapeMask;
+
+    /**
+     * The width of the bounding box.
+     */
+    private final int width;
+
+    /**
+     * The height of the bounding box.
+     */
+    private final int height;
+
+    /**
+     * The packed placements of the pattern in a 2x2 grid.
+     */
+    private final int[] placements2x2;
+
+    /**
+     * The packed placements of the pattern in a 3x3 grid.
+     */
+    private final int[] placements3x3;
+
+    /**
+     * Create a new compiled pattern.
+     * @param cells the ingredient of each cell
+     * @param shapeMask the bitmask of the cells that require an ingredient
+     * @param width the width of the bounding box
+     * @param height the height of the bounding box
+     */
+    private ShapedPattern(Ingredient[] cells, int shapeMask, int width, int height) {
+        this.cells = cells;
+        this.shapeMask = shapeMask;
+        this.width = width;
+        this.height = height;
+        boolean symmetric = this.isSymmetric();
+        this.placements2x2 = this.computePlacements(2, symmetric);
+        this.placements3x3 = this.computePlacements(3, symmetric);
+    }
+
+    /**
+     * Compile a pattern and its ingredients.
+     * @param pattern the rows of the pattern, a space being an empty cell
+     * @param ingredients the ingredients, bound to the pattern by their sign
+     * @return the compiled pattern
+     */
+    public static ShapedPattern compile(String[] pattern, Ingredient[] ingredients) {
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = -1, maxY = -1;
+        for (int y = 0; y < pattern.length; y++) {
+            String row = pattern[y];
+            for (int x = 0; x < row.length(); x++) {
+                if (row.charAt(x) != ' ') {
+                    minX = Math.min(minX, x);
+                    minY = Math.min(minY, y);
+                    maxX = Math.max(maxX, x);
+                    maxY = Math.max(maxY, y);
+                }
+            }
+        }
+        if (maxX < 0) {
+            throw new IllegalArgumentException("The pattern is empty.");
+        }
+
+        int width = maxX - minX + 1;
+        int height = maxY - minY + 1;
+        Ingredient[] cells = new Ingredient[width * height];
+        int shapeMask = 0;
+        for (int y = 0; y < height; y++) {
+            String row = pattern[minY + y];
+            for (int x = 0; x < width; x++) {
+                char sign = minX + x < row.length() ? row.charAt(minX + x) : ' ';
+                if (sign == ' ') {
+                    continue;
+                }
+                int cell = y * width + x;
+                shapeMask |= 1 << cell;
+                // A sign without ingredient keeps a null cell, which never matches.
+                cells[cell] = findIngredient(ingredients, sign);
+            }
+        }
+        return new ShapedPattern(cells, shapeMask, width, height);
+    }
+
+    /**
+     * Find the ingredient bound to a sign.
+     * @param ingredients the ingredients
+     * @param sign the sign
+     * @return the first ingredient with this sign, or null if none
+     */
+    private static Ingredient findIngredient(Ingredient[] ingredients, char sign) {
+        for (Ingredient ingredient : ingredients) {
+            if (ingredient.sign() != null && ingredient.sign() == sign) {
+                return ingredient;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check if the pattern is identical to its horizontal mirror.
+     * @return true if mirroring the pattern doesn't change it
+     */
+    private boolean isSymmetric() {
+        for (int y = 0; y < this.height; y++) {
+            for (int x = 0; x < this.width / 2; x++) {
+                int cell = y * this.width + x;
+                int mirror = y * this.width + (this.width - 1 - x);
+                if (this.isRequired(cell) != this.isRequired(mirror) || this.cells[cell] != this.cells[mirror]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compute every placement of the pattern in a square grid.
+     * A placement packs the occupancy mask of the grid, the mirrored flag and the offset.
+     * @param size the size of the grid
+     * @param symmetric if the mirrored placements can be skipped
+     * @return the packed placements
+     */
+    private int[] computePlacements(int size, boolean symmetric) {
+        if (this.width > size || this.height > size) {
+            return new int[0];
+        }
+        int offsets = (size - this.width + 1) * (size - this.height + 1);
+        int[] placements = new int[symmetric ? offsets : offsets * 2];
+        int index = 0;
+        for (int offY = 0; offY <= size - this.height; offY++) {
+            for (int offX = 0; offX <= size - this.width; offX++) {
+                for (int mirrored = 0; mirrored <= (symmetric ? 0 : 1); mirrored++) {
+                    int mask = 0;
+                    for (int y = 0; y < this.height; y++) {
+                        for (int x = 0; x < this.width; x++) {
+                            if (this.isRequired(this.cellAt(x, y, mirrored == 1))) {
+                                mask |= 1 << ((offY + y) * size + offX + x);
+                            }
+                        }
+                    }
+                    placements[index++] = mask << MASK_SHIFT | (mirrored == 1 ? MIRRORED : 0) | offY << 2 | offX;
+                }
+            }
+        }
+        return placements;
+    }
+
+    /**
+     * Check if the given crafting grid matches the pattern.
+     * The grid is either a 2x2 or a 3x3 matrix, row by row.
+     * @param matrix the crafting grid
+     * @return true if the pattern matches the grid at some offset
+     */
+    public boolean matches(ItemStack[] matrix) {
+        int size;
+        int[] placements;
+        if (matrix.length == 9) {
+            size = 3;
+            placements = this.placements3x3;
+        } else if (matrix.length == 4) {
+            size = 2;
+            placements = this.placements2x2;
+        } else {
+            return false;
+        }
+
+        int occupied = 0;
+        for (int i = 0; i < matrix.length; i++) {
+            if (!isEmpty(matrix[i])) {
+                occupied |= 1 << i;
+            }
+        }
+
+        for (int placement : placements) {
+            if (placement >>> MASK_SHIFT == occupied && this.matchesAt(matrix, size, placement)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check the ingredients of a placement whose occupancy already matches the grid.
+     * @param matrix the crafting grid
+     * @param size the size of the grid
+     * @param placement the packed placement
+     * @return true if every required cell holds a similar item
+     */
+    private boolean matchesAt(ItemStack[] matrix, int size, int placement) {
+        int offX = placement & 3;
+        int offY = (placement >>> 2) & 3;
+        boolean mirrored = (placement & MIRRORED) != 0;
+        for (int y = 0; y < this.height; y++) {
+            for (int x = 0; x < this.width; x++) {
+                int cell = this.cellAt(x, y, mirrored);
+                if (!this.isRequired(cell)) {
+                    continue;
+                }
+                Ingredient ingredient = this.cells[cell];
+                if (ingredient == null || !ingredient.isSimilar(matrix[(offY + y) * size + offX + x])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the index of a cell of the bounding box.
+     * @param x the column in the grid placement
+     * @param y the row in the grid placement
+     * @param mirrored if the placement is mirrored
+     * @return the index of the cell
+     */
+    private int cellAt(int x, int y, boolean mirrored) {
+        return y * this.width + (mirrored ? this.width - 1 - x : x);
+    }
+
+    /**
+     * Check if a cell of the bounding box requires an ingredient.
+     * @param cell the index of the cell
+     * @return true if the cell requires an ingredient
+     */
+    private boolean isRequired(int cell) {
+        return (this.shapeMask & (1 << cell)) != 0;
+    }
+
+    /**
+     * Check if a stack of the grid is empty.
+     * @param stack the stack
+     * @return true if the stack is null or air
+     */
+    private static boolean isEmpty(ItemStack stack) {
+        return stack == null || stack.getType() == Material.AIR;
+    }
+
+    /**
+     * Get the width of the bounding box.
+     * @return the width
+     */
+    public int width() {
+        return this.width;
+    }
+
+    /**
+     * Get the height of the bounding box.
+     * @return the height
+     */
+    public int height() {
+        return this.height;
+    }
+}
@@ -0,0 +1,164 @@
+package fr.traqueur.recipes.impl.matcher;
+
+import fr.traqueur.recipes.impl.domains.ItemRecipe;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * This class indexes shapeless recipes by their content signature: the number of
+ * ingredients and the materials accepted by at least one of them.
+ * For a given grid, only the recipes with as many ingredients as the grid has items
+ * and accepting every material of the grid are evaluated, in registration order.
+ */
+public final class ShapelessIndex {
+
+    /**
+     * The maximum number of items in a crafting grid.
+     */
+    private static final int MAX_ITEMS = 9;
+
+    /**
+     * The per-thread candidate bitset, grown on demand so lookups don't allocate.
+     */
+    private static final ThreadLocal<long[]> SCRATCH = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * The recipes of each bucket, indexed by number of ingredients.
+     */
+    private final Bucket[] buckets = new Bucket[MAX_ITEMS + 1];
+
+    /**
+     * Build the index of shapeless recipes.
+     * @param recipes the shapeless recipes, in registration order
+     */
+    public ShapelessIndex(Collection<ItemRecipe> recipes) {
+        List<List<ItemRecipe>> grouped = new ArrayList<>();
+        for (int i = 0; i <= MAX_ITEMS; i++) {
+            grouped.add(new ArrayList<>());
+        }
+        for (ItemRecipe recipe : recipes) {
+            ShapelessMatcher matcher = recipe.shapelessMatcher();
+            if (matcher == null) {
+                continue;
+            }
+            int count = matcher.ingredients().length;
+            if (count > 0 && count <= MAX_ITEMS) {
+                grouped.get(count).add(recipe);
+            }
+        }
+        for (int i = 1; i <= MAX_ITEMS; i++) {
+            if (!grouped.get(i).isEmpty()) {
+                this.buckets[i] = new Bucket(grouped.get(i));
+            }
+        }
+    }
+
+    /**
+     * Find the first recipe whose ingredients match the given crafting grid.
+     * @param matrix the crafting grid
+     * @return the matching recipe, or null if none
+     */
+    public ItemRecipe find(ItemStack[] matrix) {
+        int count = 0;
+        for (ItemStack stack : matrix) {
+            if (stack != null && stack.getType() != Material.AIR) {
+                count++;
+            }
+        }
+        if (count == 0 || count > MAX_ITEMS) {
+            return null;
+        }
+        Bucket bucket = this.buckets[count];
+        if (bucket == null) {
+            return null;
+        }
+
+        long[] candidates = SCRATCH.get();
+        if (candidates.length < bucket.words) {
+            candidates = new long[bucket.words];
+            SCRATCH.set(candidates);
+        }
+        boolean first = true;
+        for (ItemStack stack : matrix) {
+            if (stack == null || stack.getType() == Material.AIR) {
+                continue;
+            }
+            long[] acceptors = bucket.acceptors[stack.getType().ordinal()];
+            long any = 0;
+            for (int i = 0; i < bucket.words; i++) {
+                long accepted = bucket.wildcards[i] | (acceptors == null ? 0 : acceptors[i]);
+                candidates[i] = first ? accepted : candidates[i] & accepted;
+                any |= candidates[i];
+            }
+            if (any == 0) {
+                return null;
+            }
+            first = false;
+        }
+
+        for (int i = 0; i < bucket.words; i++) {
+            for (long word = candidates[i]; word != 0; word &= word - 1) {
+                ItemRecipe recipe = bucket.recipes[i * 64 + Long.numberOfTrailingZeros(word)];
+                if (recipe.shapelessMatcher().matches(matrix)) {
+                    return recipe;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The recipes sharing the same number of ingredients.
+     */
+    private static final class Bucket {
+
+        /**
+         * The recipes of the bucket, in registration order.
+         */
+        private final ItemRecipe[] recipes;
+
+        /**
+         * The number of words of the recipe bitsets.
+         */
+        private final int words;
+
+        /**
+         * For each material ordinal, the bitset of the recipes accepting it, or null if none.
+         */
+        private final long[][] acceptors;
+
+        /**
+         * The bitset of the recipes accepting every material.
+         */
+        private final long[] wildcards;
+
+        /**
+         * Build a bucket.
+         * @param recipes the recipes of the bucket, in registration order
+         */
+        private Bucket(List<ItemRecipe> recipes) {
+            this.recipes = recipes.toArray(new ItemRecipe[0]);
+            this.words = (this.recipes.length + 63) >>> 6;
+            this.acceptors = new long[Material.values().length][];
+            this.wildcards = new long[this.words];
+            for (int index = 0; index < this.recipes.length; index++) {
+                long bit = 1L << index;
+                MaterialSet accepted = this.recipes[index].shapelessMatcher().acceptedMaterials();
+                if (accepted.isAll()) {
+                    this.wildcards[index >>> 6] |= bit;
+                    continue;
+                }
+                for (int ordinal = accepted.nextOrdinal(0); ordinal >= 0; ordinal = accepted.nextOrdinal(ordinal + 1)) {
+                    if (this.acceptors[ordinal] == null) {
+                        this.acceptors[ordinal] = new long[this.words];
+                    }
+                    this.acceptors[ordinal][index >>> 6] |= bit;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package fr.traqueur.recipes.impl.matcher;
+
+import fr.traqueur.recipes.api.domains.Ingredient;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * This class represents the ingredients of a shapeless recipe compiled for matching.
+ * Each ingredient is assigned to a distinct item of the grid through a bipartite matching:
+ * the most specific ingredients are tried first and an augmenting path is only searched
+ * when an ingredient has no free candidate left, so overlapping ingredients
+ * (a tag and an item of that tag, for example) are resolved correctly.
+ */
+public final class ShapelessMatcher {
+
+    /**
+     * The maximum number of items in a crafting grid.
+     */
+    private static final int MAX_ITEMS = 9;
+
+    /**
+     * The per-thread working memory, so matching allocates nothing.
+     */
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * The ingredients, most specific first.
+     */
+    private final Ingredient[] ingredients;
+
+    /**
+     * The materials each ingredient can accept, in the same order as the ingredients.
+     */
+    private final MaterialSet[] materials;
+
+    /**
+     * The materials accepted by at least one ingredient.
+     */
+    private final MaterialSet acceptedMaterials;
+
+    /**
+     * Create a new compiled shapeless recipe.
+     * @param ingredients the ingredients, most specific first
+     * @param materials the materials each ingredient can accept
+     */
+    private ShapelessMatcher(Ingredient[] ingredients, MaterialSet[] materials) {
+        this.ingredients = ingredients;
+        this.materials = materials;
+        this.acceptedMaterials = MaterialSet.union(materials);
+    }
+
+    /**
+     * Compile the ingredients of a shapeless recipe.
+     * @param ingredients the ingredients
+     * @return the compiled recipe
+     */
+    public static ShapelessMatcher compile(Ingredient[] ingredients) {
+        Integer[] order = new Integer[ingredients.length];
+        MaterialSet[] resolved = new MaterialSet[ingredients.length];
+        for (int i = 0; i < ingredients.length; i++) {
+            order[i] = i;
+            resolved[i] = MaterialSet.of(ingredients[i]);
+        }
+        // Stable sort: ingredients accepting fewer materials are tried first.
+        Arrays.sort(order, Comparator.comparingInt(i -> resolved[i].size()));
+
+        Ingredient[] sortedIngredients = new Ingredient[ingredients.length];
+        MaterialSet[] sortedMaterials = new MaterialSet[ingredients.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedIngredients[i] = ingredients[order[i]];
+            sortedMaterials[i] = resolved[order[i]];
+        }
+        return new ShapelessMatcher(sortedIngredients, sortedMaterials);
+    }
+
+    /**
+     * Check if the given crafting grid holds exactly the ingredients of the recipe.
+     * @param matrix the crafting grid
+     * @return true if every ingredient is matched by a distinct item and no item is left
+     */
+    public boolean matches(ItemStack[] matrix) {
+        int size = this.ingredients.length;
+        if (size > MAX_ITEMS) {
+            return false;
+        }
+
+        Scratch scratch = SCRATCH.get();
+        int count = 0;
+        for (ItemStack stack : matrix) {
+            if (stack == null || stack.getType() == Material.AIR) {
+                continue;
+            }
+            if (count == size) {
+                return false;
+            }
+            scratch.items[count] = stack;
+            scratch.types[count] = stack.getType().ordinal();
+            count++;
+        }
+        if (count != size) {
+            return false;
+        }
+
+        try {
+            Arrays.fill(scratch.owners, 0, count, -1);
+            for (int ingredient = 0; ingredient < size; ingredient++) {
+                int candidates = this.candidates(ingredient, scratch, count);
+                if (candidates == 0) {
+                    return false;
+                }
+                scratch.candidates[ingredient] = candidates;
+                scratch.visited = 0;
+                if (!this.assign(ingredient, scratch)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            Arrays.fill(scratch.items, 0, count, null);
+        }
+    }
+
+    /**
+     * Compute the items of the grid an ingredient accepts.
+     * @param ingredient the index of the ingredient
+     * @param scratch the working memory
+     * @param count the number of items in the grid
+     * @return the bitmask of the accepted items
+     */
+    private int candidates(int ingredient, Scratch scratch, int count) {
+        MaterialSet accepted = this.materials[ingredient];
+        int candidates = 0;
+        for (int item = 0; item < count; item++) {
+            if (accepted.contains(scratch.types[item]) && this.ingredients[ingredient].isSimilar(scratch.items[item])) {
+                candidates |= 1 << item;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Assign an item to an ingredient, taking a free candidate first and
+     * otherwise moving previous assignments along an augmenting path.
+     * @param ingredient the index of the ingredient
+     * @param scratch the working memory
+     * @return true if the ingredient could be assigned
+     */
+    private boolean assign(int ingredient, Scratch scratch) {
+        int candidates = scratch.candidates[ingredient];
+        for (int remaining = candidates; remaining != 0; remaining &= remaining - 1) {
+            int item = Integer.numberOfTrailingZeros(remaining);
+            if (scratch.owners[item] < 0) {
+                scratch.owners[item] = ingredient;
+                return true;
+            }
+        }
+        for (int remaining = candidates & ~scratch.visited; remaining != 0; remaining &= remaining - 1) {
+            int item = Integer.numberOfTrailingZeros(remaining);
+            if ((scratch.visited & (1 << item)) != 0) {
+                continue;
+            }
+            scratch.visited |= 1 << item;
+            if (this.assign(scratch.owners[item], scratch)) {
+                scratch.owners[item] = ingredient;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the ingredients, most specific first.
+     * @return the ingredients
+     */
+    public Ingredient[] ingredients() {
+        return this.ingredients;
+    }
+
+    /**
+     * Get the materials each ingredient can accept, in the same order as {@link #ingredients()}.
+     * @return the materials
+     */
+    public MaterialSet[] materials() {
+        return this.materials;
+    }
+
+    /**
+     * Get the materials accepted by at least one ingredient.
+     * Together with the number of ingredients, it is the signature of the recipe:
+     * a grid can only match if it holds as many items and each of them is in this set.
+     * @return the accepted materials
+     */
+    public MaterialSet acceptedMaterials() {
+        return this.acceptedMaterials;
+    }
+
+    /**
+     * The working memory of a matching, reused by each thread.
+     */
+    private static final class Scratch {
+
+        /**
+         * The non-empty items of the grid.
+         */
+        private final ItemStack[] items = new ItemStack[MAX_ITEMS];
+
+        /**
+         * The material ordinal of each item.
+         */
+        private final int[] types = new int[MAX_ITEMS];
+
+        /**
+         * The bitmask of accepted items of each ingredient.
+         */
+        private final int[] candidates = new int[MAX_ITEMS];
+
+        /**
+         * The ingredient assigned to each item, or -1.
+         */
+        private final int[] owners = new int[MAX_ITEMS];
+
+        /**
+         * The items visited by the current augmenting path search.
+         */
+        private int visited;
+    }
+}
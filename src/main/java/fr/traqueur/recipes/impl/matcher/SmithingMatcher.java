@@ -0,0 +1,96 @@
+package fr.traqueur.recipes.impl.matcher;
+
+import fr.traqueur.recipes.api.domains.Ingredient;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * This class represents the ingredients of a smithing transform recipe compiled for matching.
+ * The materials of the three slots are compared before any ingredient checks the item meta.
+ */
+public final class SmithingMatcher {
+
+    /**
+     * The template, base and addition ingredients.
+     */
+    private final Ingredient[] ingredients;
+
+    /**
+     * The materials accepted by each ingredient.
+     */
+    private final MaterialSet[] materials;
+
+    /**
+     * Create a new compiled smithing recipe.
+     * @param ingredients the template, base and addition ingredients
+     * @param materials the materials accepted by each ingredient
+     */
+    private SmithingMatcher(Ingredient[] ingredients, MaterialSet[] materials) {
+        this.ingredients = ingredients;
+        this.materials = materials;
+    }
+
+    /**
+     * Compile the ingredients of a smithing transform recipe.
+     * @param ingredients the template, base and addition ingredients
+     * @return the compiled recipe
+     */
+    public static SmithingMatcher compile(Ingredient[] ingredients) {
+        if (ingredients.length != 3) {
+            throw new IllegalArgumentException("A smithing recipe needs a template, a base and an addition.");
+        }
+        MaterialSet[] materials = new MaterialSet[ingredients.length];
+        for (int i = 0; i < ingredients.length; i++) {
+            materials[i] = MaterialSet.of(ingredients[i]);
+        }
+        return new SmithingMatcher(ingredients, materials);
+    }
+
+    /**
+     * Check if the items of a smithing table match the recipe.
+     * @param template the template item
+     * @param base the base item
+     * @param addition the addition item
+     * @return true if each item is similar to its ingredient
+     */
+    public boolean matches(ItemStack template, ItemStack base, ItemStack addition) {
+        return this.accepts(0, template) && this.accepts(1, base) && this.accepts(2, addition)
+                && this.ingredients[0].isSimilar(template)
+                && this.ingredients[1].isSimilar(base)
+                && this.ingredients[2].isSimilar(addition);
+    }
+
+    /**
+     * Find the first slot of a smithing table whose item doesn't match its ingredient.
+     * @param template the template item
+     * @param base the base item
+     * @param addition the addition item
+     * @return the index of the slot, or -1 if every item matches
+     */
+    public int mismatch(ItemStack template, ItemStack base, ItemStack addition) {
+        ItemStack[] items = {template, base, addition};
+        for (int slot = 0; slot < items.length; slot++) {
+            if (!this.accepts(slot, items[slot]) || !this.ingredients[slot].isSimilar(items[slot])) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the materials accepted by each ingredient.
+     * @return the template, base and addition materials; must not be modified
+     */
+    public MaterialSet[] materials() {
+        return this.materials;
+    }
+
+    /**
+     * Check if the material of an item is accepted by an ingredient.
+     * @param slot the index of the ingredient
+     * @param item the item
+     * @return true if the item is present and its material is accepted
+     */
+    private boolean accepts(int slot, ItemStack item) {
+        return item != null && this.materials[slot].contains(item.getType());
+    }
+}
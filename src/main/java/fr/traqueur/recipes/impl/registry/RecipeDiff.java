@@ -0,0 +1,206 @@
+package fr.traqueur.recipes.impl.registry;
+
+import fr.traqueur.recipes.impl.domains.ItemRecipe;
+import org.bukkit.NamespacedKey;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This class represents the changes needed to go from the registered recipes to a new set of recipes.
+ * Recipes are compared by key, then by {@link ItemRecipe#contentSignature()}.
+ */
+public final class RecipeDiff {
+
+    /**
+     * The recipes whose key is not registered yet, in the order of the new recipes.
+     */
+    private final List<ItemRecipe> added;
+
+    /**
+     * The recipes whose key is registered with a different content, in the order of the new recipes.
+     */
+    private final List<ItemRecipe> changed;
+
+    /**
+     * The registered recipes replaced by the changed recipes, in the same order.
+     */
+    private final List<ItemRecipe> replaced;
+
+    /**
+     * The keys of the registered recipes absent from the new recipes.
+     */
+    private final List<NamespacedKey> removed;
+
+    /**
+     * The number of registered recipes left untouched.
+     */
+    private final int unchanged;
+
+    /**
+     * The new recipes, in registration order.
+     */
+    private final List<ItemRecipe> recipes;
+
+    /**
+     * The keys of the registered recipes replaced by the new recipes, or null for every registered recipe.
+     */
+    private final List<NamespacedKey> scope;
+
+    /**
+     * The registered recipes the diff was computed against.
+     */
+    private final RecipeSnapshot base;
+
+    /**
+     * Create a new diff.
+     * @param added the added recipes
+     * @param changed the changed recipes
+     * @param replaced the registered recipes replaced by the changed recipes
+     * @param removed the keys of the removed recipes
+     * @param unchanged the number of unchanged recipes
+     * @param recipes the new recipes, in registration order
+     * @param scope the keys of the registered recipes replaced by the new recipes, or null for every registered recipe
+     * @param base the registered recipes the diff was computed against
+     */
+    private RecipeDiff(List<ItemRecipe> added, List<ItemRecipe> changed, List<ItemRecipe> replaced, List<NamespacedKey> removed,
+                       int unchanged, List<ItemRecipe> recipes, List<NamespacedKey> scope, RecipeSnapshot base) {
+        this.added = List.copyOf(added);
+        this.changed = List.copyOf(changed);
+        this.replaced = List.copyOf(replaced);
+        this.removed = List.copyOf(removed);
+        this.unchanged = unchanged;
+        this.recipes = List.copyOf(recipes);
+        this.scope = scope;
+        this.base = base;
+    }
+
+    /**
+     * Compute the changes needed to go from a snapshot to new recipes.
+     * @param current the registered recipes
+     * @param recipes the new recipes, in registration order
+     * @return the diff
+     * @throws IllegalArgumentException if two new recipes have the same key
+     */
+    public static RecipeDiff compute(RecipeSnapshot current, Collection<ItemRecipe> recipes) {
+        return compute(current, recipes, null);
+    }
+
+    /**
+     * Compute the changes needed to replace some of the registered recipes by new recipes.
+     * Only the registered recipes of the scope can be removed, the others are left untouched.
+     * @param current the registered recipes
+     * @param recipes the new recipes, in registration order
+     * @param scope the keys of the registered recipes replaced by the new recipes
+     * @return the diff
+     * @throws IllegalArgumentException if two new recipes have the same key
+     */
+    public static RecipeDiff compute(RecipeSnapshot current, Collection<ItemRecipe> recipes, Collection<NamespacedKey> scope) {
+        List<ItemRecipe> added = new ArrayList<>();
+        List<ItemRecipe> changed = new ArrayList<>();
+        List<ItemRecipe> replaced = new ArrayList<>();
+        Set<NamespacedKey> keys = new HashSet<>();
+        int unchanged = 0;
+        for (ItemRecipe recipe : recipes) {
+            NamespacedKey key = recipe.getKey();
+            if (!keys.add(key)) {
+                throw new IllegalArgumentException("Recipe already registered: " + key);
+            }
+            ItemRecipe registered = current.get(key);
+            if (registered == null) {
+                added.add(recipe);
+            } else if (!registered.contentSignature().equals(recipe.contentSignature())) {
+                changed.add(recipe);
+                replaced.add(registered);
+            } else {
+                unchanged++;
+            }
+        }
+
+        List<NamespacedKey> removed = new ArrayList<>();
+        for (NamespacedKey key : scope == null ? current.getRecipesByKey().keySet() : scope) {
+            if (!keys.contains(key) && current.contains(key)) {
+                removed.add(key);
+            }
+        }
+        return new RecipeDiff(added, changed, replaced, removed, unchanged, List.copyOf(recipes),
+                scope == null ? null : List.copyOf(scope), current);
+    }
+
+    /**
+     * Compute the same changes again against other registered recipes.
+     * Used when the registered recipes changed since the diff was computed, so the changes made in between are kept.
+     * @param current the registered recipes
+     * @return the diff
+     */
+    public RecipeDiff rebase(RecipeSnapshot current) {
+        return compute(current, this.recipes, this.scope);
+    }
+
+    /**
+     * Get the recipes whose key is not registered yet.
+     * @return the added recipes, in the order of the new recipes
+     */
+    public List<ItemRecipe> added() {
+        return added;
+    }
+
+    /**
+     * Get the recipes whose key is registered with a different content.
+     * @return the changed recipes, in the order of the new recipes
+     */
+    public List<ItemRecipe> changed() {
+        return changed;
+    }
+
+    /**
+     * Get the registered recipes replaced by the changed recipes.
+     * @return the replaced recipes, in the order of {@link #changed()}
+     */
+    public List<ItemRecipe> replaced() {
+        return replaced;
+    }
+
+    /**
+     * Get the registered recipes the diff was computed against.
+     * @return the snapshot
+     */
+    public RecipeSnapshot base() {
+        return base;
+    }
+
+    /**
+     * Get the keys of the registered recipes absent from the new recipes.
+     * @return the keys of the removed recipes
+     */
+    public List<NamespacedKey> removed() {
+        return removed;
+    }
+
+    /**
+     * Get the number of registered recipes left untouched.
+     * @return the number of unchanged recipes
+     */
+    public int unchanged() {
+        return unchanged;
+    }
+
+    /**
+     * Get the new recipes, whose order the registry follows once the diff is applied.
+     * @return the new recipes, in registration order
+     */
+    public List<ItemRecipe> recipes() {
+        return recipes;
+    }
+
+    /**
+     * Check if the new recipes are the registered ones.
+     * @return true if nothing has to be applied
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+    }
+}
@@ -0,0 +1,197 @@
+package fr.traqueur.recipes.impl.registry;
+
+import fr.traqueur.recipes.api.ReloadSummary;
+import fr.traqueur.recipes.impl.domains.ItemRecipe;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Server;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * This class applies a {@link RecipeDiff} on the main thread, a few milliseconds per tick.
+ * The registry is only published twice, instead of once per tick:
+ * the added and changed recipes before the first tick, with the recipes laid out in the order of the new recipes, so the listeners already check the new
+ * ingredients while the server still holds an older recipe, and the removed recipes once they are
+ * all removed from the server, so no recipe of the server is left unchecked in between.
+ * On the server, changed recipes are unregistered and registered again in the same tick,
+ * unchanged recipes are never touched. The players are sent the recipes once, when everything is applied.
+ * If the registered recipes changed since the diff was computed, it is computed again before anything is applied,
+ * so the changes made in between are not overwritten. If applying a recipe fails, the changes are rolled back
+ * as far as the server allows: the changed recipes get their previous version back.
+ */
+public class RecipeDiffTask extends BukkitRunnable {
+
+    /**
+     * The plugin owning the recipes.
+     */
+    private final Plugin plugin;
+
+    /**
+     * The registry of the recipes.
+     */
+    private final RecipeRegistry registry;
+
+    /**
+     * The changes to apply, computed again if the registry changed before the first tick.
+     */
+    private RecipeDiff diff;
+
+    /**
+     * The time the changes can take per tick, in nanoseconds.
+     */
+    private final long budgetNanos;
+
+    /**
+     * The time the reload started, in nanoseconds.
+     */
+    private final long startNanos;
+
+    /**
+     * The future completed with the summary once everything is applied.
+     */
+    private final CompletableFuture<ReloadSummary> future = new CompletableFuture<>();
+
+    /**
+     * The index of the next removed recipe to apply.
+     */
+    private int removedIndex;
+
+    /**
+     * The index of the next changed recipe to apply.
+     */
+    private int changedIndex;
+
+    /**
+     * The index of the next added recipe to apply.
+     */
+    private int addedIndex;
+
+    /**
+     * The number of ticks used so far.
+     */
+    private int ticks;
+
+    /**
+     * Create a new task.
+     * @param plugin the plugin owning the recipes
+     * @param registry the registry of the recipes
+     * @param diff the changes to apply
+     * @param budgetMillis the time the changes can take per tick, in milliseconds
+     * @param startNanos the time the reload started, from {@link System#nanoTime()}
+     */
+    public RecipeDiffTask(Plugin plugin, RecipeRegistry registry, RecipeDiff diff, long budgetMillis, long startNanos) {
+        this.plugin = plugin;
+        this.registry = registry;
+        this.diff = diff;
+        this.budgetNanos = budgetMillis * 1_000_000L;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Schedule the task on every tick until the changes are applied.
+     * @return the future completed with the summary of the reload
+     */
+    public CompletableFuture<ReloadSummary> start() {
+        while (!this.registry.update(this.diff.base(), List.of(), this.put(), this.diff.recipes())) {
+            // Another change was published since the diff was computed: keep it.
+            this.diff = this.diff.rebase(this.registry.snapshot());
+        }
+        if (this.diff.isEmpty()) {
+            this.future.complete(this.summary());
+            return this.future;
+        }
+        this.runTaskTimer(this.plugin, 0L, 1L);
+        return this.future;
+    }
+
+    /**
+     * Get the recipes published before the first tick.
+     * @return the changed and added recipes
+     */
+    private List<ItemRecipe> put() {
+        List<ItemRecipe> put = new ArrayList<>(this.diff.changed().size() + this.diff.added().size());
+        put.addAll(this.diff.changed());
+        put.addAll(this.diff.added());
+        return put;
+    }
+
+    /**
+     * Get the summary of the reload.
+     * @return the summary
+     */
+    private ReloadSummary summary() {
+        long durationMillis = (System.nanoTime() - this.startNanos) / 1_000_000L;
+        return new ReloadSummary(this.diff.added().size(), this.diff.changed().size(),
+                this.diff.removed().size(), this.diff.unchanged(), this.ticks, durationMillis);
+    }
+
+    /**
+     * Apply changes until the budget of the tick is spent.
+     */
+    @Override
+    public void run() {
+        this.ticks++;
+        long deadline = System.nanoTime() + this.budgetNanos;
+        Server server = this.plugin.getServer();
+
+        try {
+            while (this.removedIndex < this.diff.removed().size() && System.nanoTime() < deadline) {
+                server.removeRecipe(this.diff.removed().get(this.removedIndex++), false);
+            }
+            while (this.changedIndex < this.diff.changed().size() && System.nanoTime() < deadline) {
+                ItemRecipe recipe = this.diff.changed().get(this.changedIndex++);
+                server.removeRecipe(recipe.getKey(), false);
+                server.addRecipe(recipe.toBukkitRecipe(), false);
+            }
+            while (this.addedIndex < this.diff.added().size() && System.nanoTime() < deadline) {
+                ItemRecipe recipe = this.diff.added().get(this.addedIndex++);
+                if (server.getRecipe(recipe.getKey()) == null) {
+                    server.addRecipe(recipe.toBukkitRecipe(), false);
+                }
+            }
+        } catch (RuntimeException exception) {
+            this.rollback(server, exception);
+            this.cancel();
+            this.future.completeExceptionally(exception);
+            return;
+        }
+
+        if (this.removedIndex == this.diff.removed().size()
+                && this.changedIndex == this.diff.changed().size()
+                && this.addedIndex == this.diff.added().size()) {
+            this.registry.unregisterAll(this.diff.removed());
+            this.cancel();
+            server.updateRecipes();
+            this.future.complete(this.summary());
+        }
+    }
+
+    /**
+     * Put the server and the registry back in line after a failure.
+     * The recipes removed so far are gone, the added recipes not reached yet were never registered on the server,
+     * and every changed recipe gets its previous version back: on the server for those already applied,
+     * in the registry for all of them.
+     * @param server the server
+     * @param failure the failure, to which the failures of the rollback are added
+     */
+    private void rollback(Server server, RuntimeException failure) {
+        List<NamespacedKey> unregistered = new ArrayList<>(this.diff.removed().subList(0, this.removedIndex));
+        for (ItemRecipe recipe : this.diff.added().subList(this.addedIndex, this.diff.added().size())) {
+            unregistered.add(recipe.getKey());
+        }
+        for (ItemRecipe previous : this.diff.replaced().subList(0, this.changedIndex)) {
+            try {
+                server.removeRecipe(previous.getKey(), false);
+                server.addRecipe(previous.toBukkitRecipe(), false);
+            } catch (RuntimeException exception) {
+                failure.addSuppressed(exception);
+            }
+        }
+        this.registry.update(unregistered, this.diff.replaced(), List.of());
+        server.updateRecipes();
+    }
+}
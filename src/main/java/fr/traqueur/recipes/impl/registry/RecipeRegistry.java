@@ -0,0 +1,331 @@
+package fr.traqueur.recipes.impl.registry;
+
+import fr.traqueur.recipes.api.RecipeType;
+import fr.traqueur.recipes.impl.domains.ItemRecipe;
+import fr.traqueur.recipes.impl.matcher.MaterialIndex;
+import fr.traqueur.recipes.impl.matcher.ShapelessIndex;
+import org.bukkit.NamespacedKey;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class is used to index the registered recipes by key and by type.
+ * Lookups from a Bukkit recipe key to its {@link ItemRecipe} are O(1).
+ * The recipes are published as immutable {@link RecipeSnapshot}s swapped atomically:
+ * readers never lock and never see a partial change.
+ * Publishing a snapshot copies the keys of the recipes, so single changes are not published at once:
+ * they are collected and published together by the next read or the next batch change.
+ * A loop registering recipes one by one thus copies the keys once, not once per recipe.
+ */
+public class RecipeRegistry {
+
+    /**
+     * The current version of the recipes, without the pending changes.
+     */
+    private final AtomicReference<RecipeSnapshot> snapshot = new AtomicReference<>(RecipeSnapshot.EMPTY);
+
+    /**
+     * The single changes not published yet, in order: the recipe put under a key, or null if the key is removed.
+     * Guarded by the registry, like every change.
+     */
+    private final LinkedHashMap<NamespacedKey, ItemRecipe> pending = new LinkedHashMap<>();
+
+    /**
+     * If some changes are pending, read without lock on each access to the snapshot.
+     */
+    private volatile boolean dirty;
+
+    /**
+     * Create a new empty registry.
+     */
+    public RecipeRegistry() {
+    }
+
+    /**
+     * Get the current version of the recipes.
+     * The pending changes are published first.
+     * Read it once per operation to see a consistent set of recipes.
+     * @return the current snapshot
+     */
+    public RecipeSnapshot snapshot() {
+        if (this.dirty) {
+            this.flush();
+        }
+        return this.snapshot.get();
+    }
+
+    /**
+     * Register a recipe under the given key.
+     * The recipe is published with the next read, see {@link RecipeRegistry}.
+     * @param key the key of the recipe
+     * @param recipe the recipe
+     * @return false if a recipe is already registered under this key
+     */
+    public synchronized boolean register(NamespacedKey key, ItemRecipe recipe) {
+        if (this.registered(key) != null) {
+            return false;
+        }
+        // Moved to the end, so a key removed then registered again comes last, as when published at once.
+        this.pending.remove(key);
+        this.pending.put(key, recipe);
+        this.dirty = true;
+        return true;
+    }
+
+    /**
+     * Unregister the recipe registered under the given key.
+     * The removal is published with the next read, see {@link RecipeRegistry}.
+     * @param key the key of the recipe
+     * @return the removed recipe, or null if no recipe was registered under this key
+     */
+    public synchronized ItemRecipe unregister(NamespacedKey key) {
+        ItemRecipe recipe = this.registered(key);
+        if (recipe == null) {
+            return null;
+        }
+        this.pending.put(key, null);
+        this.dirty = true;
+        return recipe;
+    }
+
+    /**
+     * Get the recipe registered under a key, pending changes included.
+     * @param key the key of the recipe
+     * @return the recipe, or null if no recipe is registered under this key
+     */
+    private ItemRecipe registered(NamespacedKey key) {
+        if (this.pending.containsKey(key)) {
+            return this.pending.get(key);
+        }
+        return this.snapshot.get().get(key);
+    }
+
+    /**
+     * Publish the pending changes in a single snapshot.
+     */
+    private synchronized void flush() {
+        if (!this.dirty) {
+            return;
+        }
+        RecipeSnapshot current = this.snapshot.get();
+        Map<NamespacedKey, ItemRecipe> recipesByKey = new LinkedHashMap<>(current.getRecipesByKey());
+        for (Map.Entry<NamespacedKey, ItemRecipe> entry : this.pending.entrySet()) {
+            recipesByKey.remove(entry.getKey());
+            if (entry.getValue() != null) {
+                recipesByKey.put(entry.getKey(), entry.getValue());
+            }
+        }
+        this.snapshot.set(current.derive(recipesByKey));
+        this.pending.clear();
+        this.dirty = false;
+    }
+
+    /**
+     * Register several recipes in a single atomic step.
+     * @param recipes the recipes, in registration order
+     * @throws IllegalArgumentException if a recipe is already registered or two recipes have the same key;
+     *                                  the registry is then left unchanged
+     */
+    public synchronized void registerAll(Collection<ItemRecipe> recipes) {
+        this.flush();
+        RecipeSnapshot current = this.snapshot.get();
+        Map<NamespacedKey, ItemRecipe> recipesByKey = new LinkedHashMap<>(current.getRecipesByKey());
+        for (ItemRecipe recipe : recipes) {
+            if (recipesByKey.putIfAbsent(recipe.getKey(), recipe) != null) {
+                throw new IllegalArgumentException("Recipe already registered: " + recipe.getKey());
+            }
+        }
+        this.snapshot.set(current.derive(recipesByKey));
+    }
+
+    /**
+     * Unregister several recipes in a single atomic step.
+     * @param keys the keys of the recipes
+     * @return the removed recipes, keys with no registered recipe are ignored
+     */
+    public synchronized List<ItemRecipe> unregisterAll(Collection<NamespacedKey> keys) {
+        this.flush();
+        RecipeSnapshot current = this.snapshot.get();
+        Map<NamespacedKey, ItemRecipe> recipesByKey = new LinkedHashMap<>(current.getRecipesByKey());
+        List<ItemRecipe> removed = new ArrayList<>();
+        for (NamespacedKey key : keys) {
+            ItemRecipe recipe = recipesByKey.remove(key);
+            if (recipe != null) {
+                removed.add(recipe);
+            }
+        }
+        if (!removed.isEmpty()) {
+            this.snapshot.set(current.derive(recipesByKey));
+        }
+        return removed;
+    }
+
+    /**
+     * Remove and put recipes in a single atomic step, then lay the recipes out in a given order.
+     * A put recipe replaces the recipe registered under the same key.
+     * The registered recipes whose key is in the order come after the other ones, in the order given,
+     * so a partial update still leaves the recipes it covers in their global order.
+     * @param removed the keys of the recipes to remove
+     * @param put the recipes to put
+     * @param order the recipes in their registration order, keys that are not registered are ignored
+     */
+    public synchronized void update(Collection<NamespacedKey> removed, Collection<ItemRecipe> put, List<ItemRecipe> order) {
+        this.flush();
+        Set<NamespacedKey> ordered = new HashSet<>(order.size() * 2);
+        for (ItemRecipe recipe : order) {
+            ordered.add(recipe.getKey());
+        }
+        RecipeSnapshot current = this.snapshot.get();
+        Map<NamespacedKey, ItemRecipe> recipesByKey = new LinkedHashMap<>(current.getRecipesByKey());
+        for (NamespacedKey key : removed) {
+            recipesByKey.remove(key);
+        }
+        for (ItemRecipe recipe : put) {
+            recipesByKey.put(recipe.getKey(), recipe);
+        }
+
+        Map<NamespacedKey, ItemRecipe> reordered = new LinkedHashMap<>();
+        for (Map.Entry<NamespacedKey, ItemRecipe> entry : recipesByKey.entrySet()) {
+            if (!ordered.contains(entry.getKey())) {
+                reordered.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (ItemRecipe recipe : order) {
+            ItemRecipe registered = recipesByKey.get(recipe.getKey());
+            if (registered != null) {
+                reordered.put(recipe.getKey(), registered);
+            }
+        }
+        this.snapshot.set(current.derive(reordered));
+    }
+
+    /**
+     * Remove and put recipes as {@link #update(Collection, Collection, List)} does,
+     * only if the registered recipes are still the expected ones.
+     * @param expected the snapshot the changes were computed against
+     * @param removed the keys of the recipes to remove
+     * @param put the recipes to put
+     * @param order the recipes in their registration order, keys that are not registered are ignored
+     * @return false if the registered recipes changed since the expected snapshot; nothing is changed then
+     */
+    public synchronized boolean update(RecipeSnapshot expected, Collection<NamespacedKey> removed, Collection<ItemRecipe> put,
+                                       List<ItemRecipe> order) {
+        if (this.snapshot() != expected) {
+            return false;
+        }
+        this.update(removed, put, order);
+        return true;
+    }
+
+    /**
+     * Replace every recipe of the registry in a single atomic step.
+     * @param recipes the new recipes, in registration order
+     * @return the replaced snapshot, pending changes included
+     * @throws IllegalArgumentException if two recipes have the same key; the registry is then left unchanged
+     */
+    public synchronized RecipeSnapshot replace(Collection<ItemRecipe> recipes) {
+        Map<NamespacedKey, ItemRecipe> recipesByKey = new LinkedHashMap<>();
+        for (ItemRecipe recipe : recipes) {
+            if (recipesByKey.putIfAbsent(recipe.getKey(), recipe) != null) {
+                throw new IllegalArgumentException("Recipe already registered: " + recipe.getKey());
+            }
+        }
+        this.flush();
+        return this.snapshot.getAndSet(RecipeSnapshot.of(recipesByKey));
+    }
+
+    /**
+     * Rebuild the compiled recipes and the indexes after the tags of the server are reloaded,
+     * as the materials accepted by the tag ingredients may have changed.
+     * Nothing is published if no recipe has a tag ingredient.
+     */
+    public synchronized void refreshTags() {
+        this.flush();
+        RecipeSnapshot current = this.snapshot.get();
+        boolean tagged = false;
+        for (ItemRecipe recipe : current.getRecipes()) {
+            tagged |= recipe.refreshTags();
+        }
+        if (tagged) {
+            // Built from scratch: the indexes of the current snapshot hold the previous members.
+            this.snapshot.set(RecipeSnapshot.of(current.getRecipesByKey()));
+        }
+    }
+
+    /**
+     * Remove every recipe from the registry.
+     * @return the removed snapshot, pending changes included
+     */
+    public synchronized RecipeSnapshot clear() {
+        this.flush();
+        return this.snapshot.getAndSet(RecipeSnapshot.EMPTY);
+    }
+
+    /**
+     * Get the recipe registered under the given key.
+     * @param key the key of the recipe
+     * @return the recipe, or null if no recipe is registered under this key
+     */
+    public ItemRecipe get(NamespacedKey key) {
+        return this.snapshot().get(key);
+    }
+
+    /**
+     * Check if a recipe is registered under the given key.
+     * @param key the key of the recipe
+     * @return true if a recipe is registered under this key
+     */
+    public boolean contains(NamespacedKey key) {
+        return this.snapshot().contains(key);
+    }
+
+    /**
+     * Get the recipes of the given type.
+     * @param type the type of the recipes
+     * @return a read-only list of the recipes of this type, in registration order
+     */
+    public List<ItemRecipe> getRecipes(RecipeType type) {
+        return this.snapshot().getRecipes(type);
+    }
+
+    /**
+     * Get all the registered recipes.
+     * @return a read-only list of the recipes, in registration order
+     */
+    public List<ItemRecipe> getRecipes() {
+        return this.snapshot().getRecipes();
+    }
+
+    /**
+     * Get the content index of the shapeless recipes.
+     * @return the index, in registration order
+     */
+    public ShapelessIndex getShapelessIndex() {
+        return this.snapshot().getShapelessIndex();
+    }
+
+    /**
+     * Get the recipes of a type indexed by the materials accepted by one of their ingredients:
+     * the base for smithing transform recipes, the first ingredient otherwise.
+     * @param type the type of the recipes
+     * @return the index, in registration order
+     */
+    public MaterialIndex getMaterialIndex(RecipeType type) {
+        return this.snapshot().getMaterialIndex(type);
+    }
+
+    /**
+     * Get the number of registered recipes.
+     * @return the number of recipes
+     */
+    public int size() {
+        return this.snapshot().size();
+    }
+}
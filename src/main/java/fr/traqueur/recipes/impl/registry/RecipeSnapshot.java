@@ -0,0 +1,209 @@
+package fr.traqueur.recipes.impl.registry;
+
+import fr.traqueur.recipes.api.RecipeType;
+import fr.traqueur.recipes.impl.domains.ItemRecipe;
+import fr.traqueur.recipes.impl.matcher.MaterialIndex;
+import fr.traqueur.recipes.impl.matcher.ShapelessIndex;
+import org.bukkit.NamespacedKey;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This class represents an immutable version of the registered recipes.
+ * A snapshot can be read from any thread without locking; its indexes are built on first use,
+ * or derived from the snapshot it replaces when only a few recipes changed.
+ */
+public final class RecipeSnapshot {
+
+    /**
+     * The snapshot without any recipe.
+     */
+    static final RecipeSnapshot EMPTY = new RecipeSnapshot(new LinkedHashMap<>(), null);
+
+    /**
+     * The recipes indexed by key, in registration order.
+     */
+    private final Map<NamespacedKey, ItemRecipe> recipesByKey;
+
+    /**
+     * The recipes, in registration order.
+     */
+    private final List<ItemRecipe> recipes;
+
+    /**
+     * The recipes of each type, in registration order.
+     */
+    private final Map<RecipeType, List<ItemRecipe>> recipesByType;
+
+    /**
+     * The content index of the shapeless recipes, null until first needed.
+     */
+    private volatile ShapelessIndex shapelessIndex;
+
+    /**
+     * The material indexes of each type by ordinal, null until first needed.
+     */
+    private final AtomicReferenceArray<MaterialIndex> materialIndexes = new AtomicReferenceArray<>(RecipeType.values().length);
+
+    /**
+     * Create a new snapshot.
+     * @param recipesByKey the recipes indexed by key, in registration order; owned by the snapshot
+     * @param previous the snapshot this one derives from, whose per-type lists and indexes are reused
+     *                 for the types left untouched, or null
+     */
+    private RecipeSnapshot(LinkedHashMap<NamespacedKey, ItemRecipe> recipesByKey, RecipeSnapshot previous) {
+        this.recipesByKey = Collections.unmodifiableMap(recipesByKey);
+        this.recipes = List.copyOf(recipesByKey.values());
+
+        Map<RecipeType, List<ItemRecipe>> grouped = new EnumMap<>(RecipeType.class);
+        for (RecipeType type : RecipeType.values()) {
+            grouped.put(type, new ArrayList<>());
+        }
+        for (ItemRecipe recipe : this.recipes) {
+            grouped.get(recipe.recipeType()).add(recipe);
+        }
+        for (RecipeType type : RecipeType.values()) {
+            List<ItemRecipe> recipes = grouped.get(type);
+            List<ItemRecipe> previousRecipes = previous == null ? null : previous.recipesByType.get(type);
+            if (previousRecipes != null && sameRecipes(previousRecipes, recipes)) {
+                grouped.put(type, previousRecipes);
+                this.materialIndexes.set(type.ordinal(), previous.materialIndexes.get(type.ordinal()));
+                if (type == RecipeType.CRAFTING_SHAPELESS) {
+                    this.shapelessIndex = previous.shapelessIndex;
+                }
+                continue;
+            }
+            grouped.put(type, List.copyOf(recipes));
+            MaterialIndex previousIndex = previous == null ? null : previous.materialIndexes.get(type.ordinal());
+            if (previousIndex != null) {
+                this.materialIndexes.set(type.ordinal(), previousIndex.derive(previousRecipes, recipes));
+            }
+        }
+        this.recipesByType = Collections.unmodifiableMap(grouped);
+    }
+
+    /**
+     * Create a snapshot from recipes.
+     * @param recipes the recipes indexed by key, in registration order
+     * @return the snapshot
+     */
+    static RecipeSnapshot of(Map<NamespacedKey, ItemRecipe> recipes) {
+        return recipes.isEmpty() ? EMPTY : new RecipeSnapshot(new LinkedHashMap<>(recipes), null);
+    }
+
+    /**
+     * Create the next version of this snapshot.
+     * The recipes of the types left untouched keep their lists and indexes, and the material
+     * indexes of the other types are derived from the previous ones when recipes were only added
+     * at the end or removed, so a change costs a copy of the keys instead of a rebuild of every index.
+     * @param recipes the recipes indexed by key, in registration order
+     * @return the snapshot
+     */
+    RecipeSnapshot derive(Map<NamespacedKey, ItemRecipe> recipes) {
+        return recipes.isEmpty() ? EMPTY : new RecipeSnapshot(new LinkedHashMap<>(recipes), this);
+    }
+
+    /**
+     * Check if two lists hold the same recipe instances in the same order.
+     * @param previous the first list
+     * @param recipes the second list
+     * @return true if the lists hold the same instances
+     */
+    private static boolean sameRecipes(List<ItemRecipe> previous, List<ItemRecipe> recipes) {
+        if (previous.size() != recipes.size()) {
+            return false;
+        }
+        for (int i = 0; i < previous.size(); i++) {
+            if (previous.get(i) != recipes.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the recipe registered under the given key.
+     * @param key the key of the recipe
+     * @return the recipe, or null if no recipe is registered under this key
+     */
+    public ItemRecipe get(NamespacedKey key) {
+        return this.recipesByKey.get(key);
+    }
+
+    /**
+     * Check if a recipe is registered under the given key.
+     * @param key the key of the recipe
+     * @return true if a recipe is registered under this key
+     */
+    public boolean contains(NamespacedKey key) {
+        return this.recipesByKey.containsKey(key);
+    }
+
+    /**
+     * Get the recipes of the given type.
+     * @param type the type of the recipes
+     * @return a read-only list of the recipes of this type, in registration order
+     */
+    public List<ItemRecipe> getRecipes(RecipeType type) {
+        return this.recipesByType.get(type);
+    }
+
+    /**
+     * Get all the recipes.
+     * @return a read-only list of the recipes, in registration order
+     */
+    public List<ItemRecipe> getRecipes() {
+        return this.recipes;
+    }
+
+    /**
+     * Get the recipes indexed by key.
+     * @return a read-only map of the recipes, in registration order
+     */
+    public Map<NamespacedKey, ItemRecipe> getRecipesByKey() {
+        return this.recipesByKey;
+    }
+
+    /**
+     * Get the content index of the shapeless recipes.
+     * @return the index, in registration order
+     */
+    public ShapelessIndex getShapelessIndex() {
+        ShapelessIndex index = this.shapelessIndex;
+        if (index == null) {
+            index = new ShapelessIndex(this.getRecipes(RecipeType.CRAFTING_SHAPELESS));
+            this.shapelessIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Get the recipes of a type indexed by the materials accepted by one of their ingredients:
+     * the base for smithing transform recipes, the first ingredient otherwise.
+     * @param type the type of the recipes
+     * @return the index, in registration order
+     */
+    public MaterialIndex getMaterialIndex(RecipeType type) {
+        MaterialIndex index = this.materialIndexes.get(type.ordinal());
+        if (index == null) {
+            int slot = type == RecipeType.SMITHING_TRANSFORM ? 1 : 0;
+            index = new MaterialIndex(this.getRecipes(type), slot);
+            this.materialIndexes.set(type.ordinal(), index);
+        }
+        return index;
+    }
+
+    /**
+     * Get the number of recipes.
+     * @return the number of recipes
+     */
+    public int size() {
+        return this.recipes.size();
+    }
+}
@@ -0,0 +1,191 @@
+package fr.traqueur.recipes.api;
+
+import fr.traqueur.recipes.api.domains.Ingredient;
+import fr.traqueur.recipes.impl.domains.ItemRecipe;
+import fr.traqueur.recipes.impl.domains.ingredients.MaterialIngredient;
+import fr.traqueur.recipes.impl.registry.RecipeRegistry;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that the crafting hot path allocates nothing without a match, and only the result with a match.
+ * The listeners delegate their matching to the {@link RecipeMatcher}, so its calls are measured
+ * with prebuilt item arrays, as the listeners pass the arrays built by Bukkit.
+ */
+class RecipeMatcherAllocationTest {
+
+    /**
+     * The number of calls made before measuring, so lazy indexes, scratch buffers and the JIT are settled.
+     */
+    private static final int WARMUP = 20_000;
+
+    /**
+     * The number of calls measured.
+     */
+    private static final int ITERATIONS = 10_000;
+
+    /**
+     * The bean reporting the bytes allocated by the current thread.
+     */
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * The shaped recipe: two sticks stacked.
+     */
+    private static ItemRecipe shaped;
+
+    /**
+     * The shapeless recipe: coal and flint.
+     */
+    private static ItemRecipe shapeless;
+
+    /**
+     * The smelting recipe: iron ore.
+     */
+    private static ItemRecipe smelting;
+
+    /**
+     * The matcher of the registered recipes.
+     */
+    private static RecipeMatcher matcher;
+
+    /**
+     * Keeps the results of the measured calls alive, so they are not optimized away.
+     */
+    private static Object sink;
+
+    @BeforeAll
+    static void setUp() {
+        assumeTrue(THREADS.isThreadAllocatedMemorySupported(), "Thread allocation counters are not supported.");
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+
+        Plugin plugin = mock(Plugin.class);
+        when(plugin.getName()).thenReturn("test");
+        RecipeType.registerPlugin(plugin);
+
+        shaped = recipe("stick_tower", RecipeType.CRAFTING_SHAPED, "DIAMOND", new String[]{"S", "S"},
+                new MaterialIngredient(Material.STICK, 'S'));
+        shapeless = recipe("powder", RecipeType.CRAFTING_SHAPELESS, "GUNPOWDER", null,
+                new MaterialIngredient(Material.COAL), new MaterialIngredient(Material.FLINT));
+        smelting = recipe("iron", RecipeType.SMELTING, "IRON_INGOT", null,
+                new MaterialIngredient(Material.IRON_ORE));
+
+        RecipeRegistry registry = new RecipeRegistry();
+        registry.registerAll(List.of(shaped, shapeless, smelting));
+        matcher = new RecipeMatcher(registry);
+    }
+
+    @Test
+    void shapedMatchDoesNotAllocate() {
+        ItemStack[] matrix = grid(Material.STICK, null, null, Material.STICK, null, null, null, null, null);
+        assertSame(shaped, matcher.findCrafting(matrix));
+        assertEquals(0, allocatedPerCall(() -> sink = matcher.findCrafting(matrix)));
+        assertEquals(0, allocatedPerCall(() -> sink = matcher.matches(shaped, matrix)));
+    }
+
+    @Test
+    void shapedMismatchDoesNotAllocate() {
+        ItemStack[] matrix = grid(Material.STICK, Material.STICK, null, null, null, null, null, null, null);
+        assertNull(matcher.find(RecipeType.CRAFTING_SHAPED, matrix));
+        assertFalse(matcher.matches(shaped, matrix));
+        assertEquals(0, allocatedPerCall(() -> sink = matcher.find(RecipeType.CRAFTING_SHAPED, matrix)));
+        assertEquals(0, allocatedPerCall(() -> sink = matcher.matches(shaped, matrix)));
+    }
+
+    @Test
+    void shapelessMatchDoesNotAllocate() {
+        ItemStack[] matrix = grid(null, Material.FLINT, null, null, null, null, Material.COAL, null, null);
+        assertSame(shapeless, matcher.find(RecipeType.CRAFTING_SHAPELESS, matrix));
+        assertTrue(matcher.matches(shapeless, matrix));
+        assertEquals(0, allocatedPerCall(() -> sink = matcher.find(RecipeType.CRAFTING_SHAPELESS, matrix)));
+        assertEquals(0, allocatedPerCall(() -> sink = matcher.matches(shapeless, matrix)));
+    }
+
+    @Test
+    void shapelessMismatchDoesNotAllocate() {
+        ItemStack[] matrix = grid(null, Material.FLINT, null, null, Material.STICK, null, Material.COAL, null, null);
+        assertNull(matcher.findCrafting(matrix));
+        assertFalse(matcher.matches(shapeless, matrix));
+        assertEquals(0, allocatedPerCall(() -> sink = matcher.findCrafting(matrix)));
+        assertEquals(0, allocatedPerCall(() -> sink = matcher.matches(shapeless, matrix)));
+    }
+
+    @Test
+    void cookingLookupDoesNotAllocate() {
+        ItemStack[] ore = {new ItemStack(Material.IRON_ORE)};
+        ItemStack[] stone = {new ItemStack(Material.STONE)};
+        assertSame(smelting, matcher.find(RecipeType.SMELTING, ore));
+        assertNull(matcher.find(RecipeType.SMELTING, stone));
+        assertEquals(0, allocatedPerCall(() -> sink = matcher.find(RecipeType.SMELTING, ore)));
+        assertEquals(0, allocatedPerCall(() -> sink = matcher.find(RecipeType.SMELTING, stone)));
+    }
+
+    @Test
+    void matchAllocatesOnlyTheResult() {
+        ItemStack[] matrix = grid(Material.STICK, null, null, Material.STICK, null, null, null, null, null);
+        ItemStack prototype = shaped.toBukkitItemStack(null);
+        assertNotNull(prototype);
+        long result = allocatedPerCall(() -> sink = prototype.clone());
+        long match = allocatedPerCall(() -> sink = matcher.findCrafting(matrix).toBukkitItemStack(null));
+        assertTrue(match <= result, "A match allocated " + match + " bytes, the result alone takes " + result + " bytes.");
+    }
+
+    /**
+     * Measure the bytes allocated by an action, once warmed up.
+     * @param action the action
+     * @return the average number of bytes allocated by a call, rounded down
+     */
+    private static long allocatedPerCall(Runnable action) {
+        for (int i = 0; i < WARMUP; i++) {
+            action.run();
+        }
+        long before = THREADS.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            action.run();
+        }
+        return (THREADS.getCurrentThreadAllocatedBytes() - before) / ITERATIONS;
+    }
+
+    /**
+     * Build a 3x3 crafting grid, row by row.
+     * @param materials the materials of the slots, null for an empty slot
+     * @return the grid
+     */
+    private static ItemStack[] grid(Material... materials) {
+        ItemStack[] matrix = new ItemStack[materials.length];
+        for (int i = 0; i < materials.length; i++) {
+            matrix[i] = materials[i] == null ? null : new ItemStack(materials[i]);
+        }
+        return matrix;
+    }
+
+    /**
+     * Create a recipe with no group nor category.
+     * @param name the name of the recipe
+     * @param type the type of the recipe
+     * @param result the material of the result
+     * @param pattern the pattern of a shaped recipe, null otherwise
+     * @param ingredients the ingredients
+     * @return the recipe
+     */
+    private static ItemRecipe recipe(String name, RecipeType type, String result, String[] pattern, Ingredient... ingredients) {
+        return new ItemRecipe(name, "", null, type, result, 1, ingredients, pattern, 0, 0f, 0);
+    }
+}
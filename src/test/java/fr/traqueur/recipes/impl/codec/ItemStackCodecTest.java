@@ -0,0 +1,85 @@
+package fr.traqueur.recipes.impl.codec;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.Server;
+import org.bukkit.UnsafeValues;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemStack;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that an encoded item decodes to the same item, and that damaged data is rejected
+ * instead of decoding to another item.
+ */
+class ItemStackCodecTest {
+
+    @BeforeAll
+    static void setUp() {
+        if (Bukkit.getServer() != null) {
+            return;
+        }
+        // Items without meta are serialized with the data version and the material only.
+        UnsafeValues unsafe = mock(UnsafeValues.class);
+        when(unsafe.getDataVersion()).thenReturn(4440);
+        when(unsafe.getMaterial(anyString(), anyInt())).thenAnswer(invocation -> Material.getMaterial(invocation.getArgument(0)));
+        ItemFactory factory = mock(ItemFactory.class);
+        when(factory.equals(any(), any())).thenReturn(true);
+
+        Server server = mock(Server.class);
+        when(server.getLogger()).thenReturn(Logger.getLogger("test"));
+        when(server.getUnsafe()).thenReturn(unsafe);
+        when(server.getItemFactory()).thenReturn(factory);
+        Bukkit.setServer(server);
+    }
+
+    @Test
+    void itemSurvivesARoundTrip() {
+        ItemStack item = new ItemStack(Material.DIAMOND_SWORD, 3);
+        ItemStack decoded = ItemStackCodec.decode(ItemStackCodec.encode(item));
+        assertEquals(Material.DIAMOND_SWORD, decoded.getType());
+        assertEquals(3, decoded.getAmount());
+    }
+
+    @Test
+    void stringAndBytesDecodeAlike() {
+        String encoded = ItemStackCodec.encode(new ItemStack(Material.EMERALD, 7));
+        ItemStack decoded = ItemStackCodec.decode(Base64.getUrlDecoder().decode(encoded));
+        assertEquals(Material.EMERALD, decoded.getType());
+        assertEquals(7, decoded.getAmount());
+    }
+
+    @Test
+    void truncatedDataIsRejected() {
+        byte[] bytes = Base64.getUrlDecoder().decode(ItemStackCodec.encode(new ItemStack(Material.DIAMOND_SWORD, 3)));
+        for (int length = 0; length < bytes.length; length++) {
+            byte[] truncated = Arrays.copyOf(bytes, length);
+            assertThrows(IllegalArgumentException.class, () -> ItemStackCodec.decode(truncated),
+                    "A prefix of " + length + " bytes was decoded.");
+        }
+    }
+
+    @Test
+    void trailingDataIsRejected() {
+        byte[] bytes = Base64.getUrlDecoder().decode(ItemStackCodec.encode(new ItemStack(Material.DIAMOND_SWORD)));
+        assertThrows(IllegalArgumentException.class, () -> ItemStackCodec.decode(Arrays.copyOf(bytes, bytes.length + 1)));
+    }
+
+    @Test
+    void unknownTagIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ItemStackCodec.decode(new byte[]{1, 1, 1, 'v', 99}));
+    }
+}
@@ -0,0 +1,130 @@
+package fr.traqueur.recipes.impl.loader;
+
+import fr.traqueur.recipes.api.RecipeType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the cache gives back the recipes it wrote, and nothing when its file is damaged.
+ */
+class RecipeCacheTest {
+
+    /**
+     * The directory of the cache and recipe files.
+     */
+    @TempDir
+    Path directory;
+
+    @Test
+    void entriesSurviveARoundTrip() throws IOException {
+        Path recipes = this.recipeFile();
+        RecipeSpec shaped = new RecipeSpec("tower", RecipeType.CRAFTING_SHAPED, "towers", "MISC", "item:DIAMOND", 2,
+                new String[]{"S", "S"}, 0, 0f, 3,
+                List.of(new RecipeSpec.IngredientSpec("item:STICK", 'S', false)));
+        RecipeSpec smelting = new RecipeSpec("iron", RecipeType.SMELTING, "", "", "item:IRON_INGOT", 1,
+                null, 200, 0.7f, 0,
+                List.of(new RecipeSpec.IngredientSpec("tag:iron_ores", null, true)));
+        long hash = RecipeCache.hash(recipes);
+
+        RecipeCache cache = new RecipeCache(this.directory.resolve("cache.bin"));
+        cache.put(recipes, Files.size(recipes), hash, 10L, List.of(shaped, smelting));
+        cache.write();
+
+        RecipeCache read = new RecipeCache(this.directory.resolve("cache.bin"));
+        read.read();
+        assertTrue(read.mayContain(recipes, Files.size(recipes)));
+        List<RecipeSpec> specs = read.get(recipes, Files.size(recipes), hash, 10L);
+        assertNotNull(specs);
+        assertEquals(2, specs.size());
+        assertSpecEquals(shaped, specs.get(0));
+        assertSpecEquals(smelting, specs.get(1));
+    }
+
+    @Test
+    void changedContentMisses() throws IOException {
+        Path recipes = this.recipeFile();
+        RecipeCache cache = new RecipeCache(this.directory.resolve("cache.bin"));
+        long size = Files.size(recipes);
+        cache.put(recipes, size, RecipeCache.hash(recipes), 10L, List.of());
+
+        assertNull(cache.get(recipes, size, RecipeCache.hash(recipes) + 1, 10L));
+        assertFalse(cache.mayContain(recipes, size + 1));
+        assertNotNull(cache.get(recipes, size, RecipeCache.hash(recipes), 20L));
+    }
+
+    @Test
+    void corruptedFileGivesAnEmptyCache() throws IOException {
+        Path recipes = this.recipeFile();
+        Path file = this.directory.resolve("cache.bin");
+        RecipeCache cache = new RecipeCache(file);
+        cache.put(recipes, Files.size(recipes), RecipeCache.hash(recipes), 10L, List.of(
+                new RecipeSpec("iron", RecipeType.SMELTING, "", "", "item:IRON_INGOT", 1, null, 200, 0.7f, 0, List.of())));
+        cache.write();
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 5));
+
+        RecipeCache read = new RecipeCache(file);
+        assertThrows(IOException.class, read::read);
+        assertFalse(read.mayContain(recipes, Files.size(recipes)));
+    }
+
+    @Test
+    void foreignFileGivesAnEmptyCache() throws IOException {
+        Path recipes = this.recipeFile();
+        Path file = this.directory.resolve("cache.bin");
+        Files.writeString(file, "not a cache at all");
+
+        RecipeCache cache = new RecipeCache(file);
+        cache.read();
+        assertFalse(cache.mayContain(recipes, Files.size(recipes)));
+    }
+
+    @Test
+    void missingFileGivesAnEmptyCache() throws IOException {
+        RecipeCache cache = new RecipeCache(this.directory.resolve("missing.bin"));
+        cache.read();
+        assertFalse(cache.mayContain(this.directory.resolve("recipes.yml"), 0));
+    }
+
+    /**
+     * Create a recipe file to cache.
+     * @return the absolute path of the file
+     * @throws IOException if the file can't be written
+     */
+    private Path recipeFile() throws IOException {
+        return Files.writeString(this.directory.resolve("recipes.yml"), "type: SMELTING\n").toAbsolutePath();
+    }
+
+    /**
+     * Check that two recipes are equal, their patterns compared by content.
+     * @param expected the expected recipe
+     * @param actual the actual recipe
+     */
+    private static void assertSpecEquals(RecipeSpec expected, RecipeSpec actual) {
+        assertEquals(expected.name(), actual.name());
+        assertEquals(expected.type(), actual.type());
+        assertEquals(expected.group(), actual.group());
+        assertEquals(expected.category(), actual.category());
+        assertEquals(expected.result(), actual.result());
+        assertEquals(expected.amount(), actual.amount());
+        assertArrayEquals(expected.pattern(), actual.pattern());
+        assertEquals(expected.cookingTime(), actual.cookingTime());
+        assertEquals(expected.experience(), actual.experience());
+        assertEquals(expected.priority(), actual.priority());
+        assertEquals(expected.ingredients(), actual.ingredients());
+    }
+}
@@ -0,0 +1,86 @@
+package fr.traqueur.recipes.impl.loader;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the documents of a file are read in order, single-recipe and multi-recipe documents alike,
+ * each recipe getting its own configuration.
+ */
+class RecipeFileParserTest {
+
+    /**
+     * A file mixing both kinds of documents.
+     */
+    private static final String FILE = """
+            type: CRAFTING_SHAPELESS
+            result:
+              item: DIAMOND
+            ---
+            first:
+              type: SMELTING
+              result:
+                item: IRON_INGOT
+            second:
+              type: BLASTING
+              result:
+                item: GOLD_INGOT
+            ---
+            name: named
+            type: SMOKING
+            ---
+            type: CAMPFIRE_COOKING
+            """;
+
+    @Test
+    void documentsAreReadInOrder() {
+        List<RecipeFileParser.Source> sources = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        RecipeFileParser.read("pack", new StringReader(FILE), sources::add, (name, error) -> errors.add(name));
+
+        assertTrue(errors.isEmpty(), "Unexpected errors: " + errors);
+        assertEquals(List.of("pack", "first", "second", "named", "pack_3"), sources.stream().map(RecipeFileParser.Source::name).toList());
+        assertEquals(List.of("CRAFTING_SHAPELESS", "SMELTING", "BLASTING", "SMOKING", "CAMPFIRE_COOKING"),
+                sources.stream().map(source -> source.configuration().getString(source.path() + "type")).toList());
+    }
+
+    @Test
+    void eachRecipeHoldsOnlyItsSection() {
+        List<RecipeFileParser.Source> sources = new ArrayList<>();
+        RecipeFileParser.read("pack", new StringReader(FILE), sources::add, (name, error) -> {});
+
+        RecipeFileParser.Source first = sources.get(1);
+        assertEquals("IRON_INGOT", first.configuration().getString("result.item"));
+        assertFalse(first.configuration().contains("second"));
+    }
+
+    @Test
+    void invalidDocumentsAreReported() {
+        List<RecipeFileParser.Source> sources = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        RecipeFileParser.read("pack", new StringReader("- not a map\n---\nbroken: 1\n---\ntype: SMELTING\n"),
+                sources::add, (name, error) -> errors.add(name));
+
+        assertEquals(List.of("pack"), errors);
+        assertEquals(List.of("broken", "pack_2"), sources.stream().map(RecipeFileParser.Source::name).toList());
+        assertFalse(sources.getFirst().configuration().contains("type"));
+    }
+
+    @Test
+    void yamlErrorStopsTheFile() {
+        List<RecipeFileParser.Source> sources = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        RecipeFileParser.read("pack", new StringReader("type: SMELTING\n---\ntype: [unclosed\n---\ntype: SMOKING\n"),
+                sources::add, (name, error) -> errors.add(name));
+
+        assertEquals(1, sources.size());
+        assertEquals(List.of("pack"), errors);
+    }
+}
@@ -0,0 +1,96 @@
+package fr.traqueur.recipes.impl.matcher;
+
+import fr.traqueur.recipes.api.domains.Ingredient;
+import fr.traqueur.recipes.impl.domains.ingredients.MaterialIngredient;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a compiled pattern matches at every offset of the grid, mirrored or not, like vanilla does.
+ */
+class ShapedPatternTest {
+
+    /**
+     * The stick ingredient, bound to S.
+     */
+    private static final Ingredient STICK = new MaterialIngredient(Material.STICK, 'S');
+
+    /**
+     * The stone ingredient, bound to A.
+     */
+    private static final Ingredient STONE = new MaterialIngredient(Material.STONE, 'A');
+
+    /**
+     * The dirt ingredient, bound to B.
+     */
+    private static final Ingredient DIRT = new MaterialIngredient(Material.DIRT, 'B');
+
+    @Test
+    void patternIsTrimmedToItsBoundingBox() {
+        ShapedPattern pattern = ShapedPattern.compile(new String[]{"   ", " AB", "   "}, new Ingredient[]{STONE, DIRT});
+        assertEquals(2, pattern.width());
+        assertEquals(1, pattern.height());
+    }
+
+    @Test
+    void emptyPatternIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ShapedPattern.compile(new String[]{"   ", "  "}, new Ingredient[0]));
+    }
+
+    @Test
+    void patternMatchesAtEveryOffset() {
+        ShapedPattern pattern = ShapedPattern.compile(new String[]{"S", "S"}, new Ingredient[]{STICK});
+        assertTrue(pattern.matches(grid(Material.STICK, null, null, Material.STICK, null, null, null, null, null)));
+        assertTrue(pattern.matches(grid(null, null, null, null, Material.STICK, null, null, Material.STICK, null)));
+        assertTrue(pattern.matches(grid(null, null, null, null, null, Material.STICK, null, null, Material.STICK)));
+        assertTrue(pattern.matches(grid(null, Material.STICK, null, Material.STICK)));
+    }
+
+    @Test
+    void patternRejectsOtherShapes() {
+        ShapedPattern pattern = ShapedPattern.compile(new String[]{"S", "S"}, new Ingredient[]{STICK});
+        assertFalse(pattern.matches(grid(Material.STICK, null, null, null, Material.STICK, null, null, null, null)));
+        assertFalse(pattern.matches(grid(Material.STICK, Material.STICK, null, null, null, null, null, null, null)));
+        assertFalse(pattern.matches(grid(Material.STICK, null, null, Material.STICK, null, null, Material.STICK, null, null)));
+        assertFalse(pattern.matches(grid(Material.STICK, null, null, Material.STONE, null, null, null, null, null)));
+    }
+
+    @Test
+    void patternMatchesMirrored() {
+        ShapedPattern pattern = ShapedPattern.compile(new String[]{"AB", "A "}, new Ingredient[]{STONE, DIRT});
+        assertTrue(pattern.matches(grid(Material.STONE, Material.DIRT, null, Material.STONE, null, null, null, null, null)));
+        assertTrue(pattern.matches(grid(null, Material.DIRT, Material.STONE, null, null, Material.STONE, null, null, null)));
+        assertTrue(pattern.matches(grid(Material.DIRT, Material.STONE, null, Material.STONE)));
+    }
+
+    @Test
+    void patternIsNotFlippedVertically() {
+        ShapedPattern pattern = ShapedPattern.compile(new String[]{"AB", "A "}, new Ingredient[]{STONE, DIRT});
+        assertFalse(pattern.matches(grid(Material.STONE, null, null, Material.STONE, Material.DIRT, null, null, null, null)));
+    }
+
+    @Test
+    void patternRejectsUnsupportedGrids() {
+        ShapedPattern pattern = ShapedPattern.compile(new String[]{"S"}, new Ingredient[]{STICK});
+        assertFalse(pattern.matches(grid(Material.STICK, null)));
+    }
+
+    /**
+     * Build a crafting grid, row by row.
+     * @param materials the materials of the slots, null for an empty slot
+     * @return the grid
+     */
+    private static ItemStack[] grid(Material... materials) {
+        ItemStack[] matrix = new ItemStack[materials.length];
+        for (int i = 0; i < materials.length; i++) {
+            matrix[i] = materials[i] == null ? null : new ItemStack(materials[i]);
+        }
+        return matrix;
+    }
+}
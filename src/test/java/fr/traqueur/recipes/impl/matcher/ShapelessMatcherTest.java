@@ -0,0 +1,83 @@
+package fr.traqueur.recipes.impl.matcher;
+
+import fr.traqueur.recipes.api.domains.Ingredient;
+import fr.traqueur.recipes.impl.domains.ingredients.MaterialIngredient;
+import fr.traqueur.recipes.impl.domains.ingredients.TagIngredient;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Tag;
+import org.bukkit.inventory.ItemStack;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that overlapping shapeless ingredients are each given a distinct item of the grid,
+ * whatever the order of the items.
+ */
+class ShapelessMatcherTest {
+
+    @Test
+    void overlappingIngredientsAreReassigned() {
+        // Both tags accept oak: the first one must give it up for birch so the second one can use it.
+        ShapelessMatcher matcher = ShapelessMatcher.compile(new Ingredient[]{
+                tag("oak_or_birch", Material.OAK_PLANKS, Material.BIRCH_PLANKS),
+                tag("oak_or_spruce", Material.OAK_PLANKS, Material.SPRUCE_PLANKS)});
+        assertTrue(matcher.matches(grid(Material.OAK_PLANKS, Material.BIRCH_PLANKS)));
+        assertTrue(matcher.matches(grid(Material.BIRCH_PLANKS, Material.OAK_PLANKS)));
+        assertTrue(matcher.matches(grid(Material.OAK_PLANKS, Material.SPRUCE_PLANKS)));
+        assertTrue(matcher.matches(grid(Material.OAK_PLANKS, Material.OAK_PLANKS)));
+    }
+
+    @Test
+    void itemAndItsTagAreBothMatched() {
+        ShapelessMatcher matcher = ShapelessMatcher.compile(new Ingredient[]{
+                tag("planks", Material.OAK_PLANKS, Material.BIRCH_PLANKS),
+                new MaterialIngredient(Material.OAK_PLANKS)});
+        assertTrue(matcher.matches(grid(Material.OAK_PLANKS, Material.BIRCH_PLANKS)));
+        assertTrue(matcher.matches(grid(Material.BIRCH_PLANKS, Material.OAK_PLANKS)));
+        assertFalse(matcher.matches(grid(Material.BIRCH_PLANKS, Material.BIRCH_PLANKS)));
+    }
+
+    @Test
+    void itemsMustBeUsedExactlyOnce() {
+        ShapelessMatcher matcher = ShapelessMatcher.compile(new Ingredient[]{
+                tag("oak_or_birch", Material.OAK_PLANKS, Material.BIRCH_PLANKS),
+                tag("oak_or_spruce", Material.OAK_PLANKS, Material.SPRUCE_PLANKS)});
+        assertFalse(matcher.matches(grid(Material.BIRCH_PLANKS, Material.BIRCH_PLANKS)));
+        assertFalse(matcher.matches(grid(Material.OAK_PLANKS)));
+        assertFalse(matcher.matches(grid(Material.OAK_PLANKS, Material.BIRCH_PLANKS, Material.SPRUCE_PLANKS)));
+    }
+
+    /**
+     * Create a tag ingredient whose tag holds the given materials.
+     * @param name the name of the tag
+     * @param materials the members of the tag
+     * @return the ingredient
+     */
+    @SuppressWarnings("unchecked")
+    private static TagIngredient tag(String name, Material... materials) {
+        Tag<Material> tag = mock(Tag.class);
+        when(tag.getKey()).thenReturn(NamespacedKey.minecraft(name));
+        when(tag.getValues()).thenReturn(Set.of(materials));
+        return new TagIngredient(tag);
+    }
+
+    /**
+     * Build a 3x3 crafting grid with the given items first, the other slots being empty.
+     * @param materials the materials of the items
+     * @return the grid
+     */
+    private static ItemStack[] grid(Material... materials) {
+        ItemStack[] matrix = new ItemStack[9];
+        for (int i = 0; i < materials.length; i++) {
+            matrix[i] = new ItemStack(materials[i]);
+        }
+        return matrix;
+    }
+}
@@ -0,0 +1,105 @@
+package fr.traqueur.recipes.impl.registry;
+
+import fr.traqueur.recipes.api.RecipeType;
+import fr.traqueur.recipes.api.domains.Ingredient;
+import fr.traqueur.recipes.impl.domains.ItemRecipe;
+import fr.traqueur.recipes.impl.domains.ingredients.MaterialIngredient;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that a diff classifies each recipe by key and content,
+ * so a reload only touches the recipes that actually changed.
+ */
+class RecipeDiffTest {
+
+    @BeforeAll
+    static void setUp() {
+        Plugin plugin = mock(Plugin.class);
+        when(plugin.getName()).thenReturn("test");
+        RecipeType.registerPlugin(plugin);
+    }
+
+    @Test
+    void recipesAreClassifiedByKeyAndContent() {
+        ItemRecipe kept = recipe("kept", Material.COAL);
+        ItemRecipe edited = recipe("edited", Material.FLINT);
+        ItemRecipe dropped = recipe("dropped", Material.STICK);
+        RecipeRegistry registry = new RecipeRegistry();
+        registry.registerAll(List.of(kept, edited, dropped));
+
+        ItemRecipe keptAgain = recipe("kept", Material.COAL);
+        ItemRecipe editedAgain = recipe("edited", Material.GRAVEL);
+        ItemRecipe created = recipe("created", Material.CLAY_BALL);
+        RecipeDiff diff = RecipeDiff.compute(registry.snapshot(), List.of(keptAgain, editedAgain, created));
+
+        assertEquals(List.of(created), diff.added());
+        assertEquals(List.of(editedAgain), diff.changed());
+        assertEquals(List.of(edited), diff.replaced());
+        assertEquals(List.of(dropped.getKey()), diff.removed());
+        assertEquals(1, diff.unchanged());
+        assertEquals(List.of(keptAgain, editedAgain, created), diff.recipes());
+        assertSame(registry.snapshot(), diff.base());
+    }
+
+    @Test
+    void sameRecipesGiveAnEmptyDiff() {
+        RecipeRegistry registry = new RecipeRegistry();
+        registry.registerAll(List.of(recipe("a", Material.COAL), recipe("b", Material.FLINT)));
+        RecipeDiff diff = RecipeDiff.compute(registry.snapshot(), List.of(recipe("a", Material.COAL), recipe("b", Material.FLINT)));
+        assertTrue(diff.isEmpty());
+        assertEquals(2, diff.unchanged());
+    }
+
+    @Test
+    void scopeLimitsTheRemovedRecipes() {
+        ItemRecipe inScope = recipe("in_scope", Material.COAL);
+        ItemRecipe outOfScope = recipe("out_of_scope", Material.FLINT);
+        RecipeRegistry registry = new RecipeRegistry();
+        registry.registerAll(List.of(inScope, outOfScope));
+
+        RecipeDiff diff = RecipeDiff.compute(registry.snapshot(), List.of(), List.of(inScope.getKey()));
+        assertEquals(List.of(inScope.getKey()), diff.removed());
+    }
+
+    @Test
+    void rebaseKeepsTheChangesMadeInBetween() {
+        RecipeRegistry registry = new RecipeRegistry();
+        registry.registerAll(List.of(recipe("a", Material.COAL)));
+        RecipeDiff diff = RecipeDiff.compute(registry.snapshot(), List.of(recipe("a", Material.COAL), recipe("b", Material.FLINT)));
+        assertEquals(1, diff.added().size());
+
+        ItemRecipe published = recipe("b", Material.FLINT);
+        registry.register(published.getKey(), published);
+        RecipeDiff rebased = diff.rebase(registry.snapshot());
+        assertTrue(rebased.isEmpty());
+        assertSame(registry.snapshot(), rebased.base());
+
+        NamespacedKey key = recipe("a", Material.COAL).getKey();
+        registry.unregister(key);
+        assertEquals(List.of(), diff.rebase(registry.snapshot()).removed());
+        assertEquals(1, diff.rebase(registry.snapshot()).added().size());
+    }
+
+    /**
+     * Create a shapeless recipe giving a diamond.
+     * @param name the name of the recipe
+     * @param material the material of its single ingredient
+     * @return the recipe
+     */
+    private static ItemRecipe recipe(String name, Material material) {
+        return new ItemRecipe(name, "", null, RecipeType.CRAFTING_SHAPELESS, "DIAMOND", 1,
+                new Ingredient[]{new MaterialIngredient(material)}, null, 0, 0f, 0);
+    }
+}
@@ -0,0 +1,86 @@
+package fr.traqueur.testplugin;
+
+import fr.traqueur.recipes.api.Util;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemFlag;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+public final class CodecBenchmark {
+
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 10_000;
+
+    private CodecBenchmark() {
+    }
+
+    public static void run(Logger logger) {
+        ItemStack simple = new ItemStack(Material.DIAMOND);
+
+        ItemStack complex = new ItemStack(Material.DIAMOND_SWORD);
+        ItemMeta meta = complex.getItemMeta();
+        meta.setDisplayName("Benchmark Sword");
+        meta.setLore(List.of("First line", "Second line"));
+        meta.setCustomModelData(42);
+        meta.addEnchant(Enchantment.SHARPNESS, 5, true);
+        complex.setItemMeta(meta);
+
+        ItemStack heavy = new ItemStack(Material.NETHERITE_CHESTPLATE);
+        ItemMeta heavyMeta = heavy.getItemMeta();
+        heavyMeta.setDisplayName("Benchmark Chestplate");
+        heavyMeta.setLore(List.of("First line", "Second line", "Third line"));
+        heavyMeta.addEnchant(Enchantment.PROTECTION, 4, true);
+        heavyMeta.addEnchant(Enchantment.UNBREAKING, 3, true);
+        heavyMeta.addEnchant(Enchantment.MENDING, 1, true);
+        heavyMeta.addItemFlags(ItemFlag.HIDE_ENCHANTS, ItemFlag.HIDE_ATTRIBUTES);
+        heavyMeta.getPersistentDataContainer().set(new NamespacedKey("testplugin", "benchmark"), PersistentDataType.STRING, "heavy");
+        heavyMeta.getPersistentDataContainer().set(new NamespacedKey("testplugin", "level"), PersistentDataType.INTEGER, 7);
+        heavy.setItemMeta(heavyMeta);
+
+        for (ItemStack item : List.of(simple, complex, heavy)) {
+            logger.info("Codec benchmark for " + item.getType() + ":");
+            measure(logger, "base64", item, Util::fromItemStack, Util::getItemStack);
+            measure(logger, "bin1", item, Util::fromItemStackCompact, Util::getCompactItemStack);
+        }
+    }
+
+    private static void measure(Logger logger, String name, ItemStack item,
+                                Function<ItemStack, String> encoder, Function<String, ItemStack> decoder) {
+        String encoded;
+        try {
+            encoded = encoder.apply(item);
+            if (!decoder.apply(encoded).isSimilar(item)) {
+                logger.warning("  " + name + ": the decoded item differs from the original");
+                return;
+            }
+        } catch (IllegalArgumentException exception) {
+            logger.warning("  " + name + ": round trip failed: " + exception.getMessage());
+            return;
+        }
+        for (int i = 0; i < WARMUP; i++) {
+            decoder.apply(encoder.apply(item));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            encoder.apply(item);
+        }
+        long encode = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            decoder.apply(encoded);
+        }
+        long decode = System.nanoTime() - start;
+
+        logger.info(String.format("  %s: %d chars, encode %.2f us, decode %.2f us",
+                name, encoded.length(), encode / 1000.0 / ITERATIONS, decode / 1000.0 / ITERATIONS));
+    }
+}
@@ -5,10 +5,14 @@ import fr.traqueur.recipes.api.RecipesAPI;
 import fr.traqueur.recipes.impl.domains.ItemRecipe;
 import fr.traqueur.recipes.impl.domains.recipes.RecipeBuilder;
 import org.bukkit.Material;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.util.List;
+
 public final class TestPlugin extends JavaPlugin {
 
     private RecipesAPI recipesAPI;
@@ -58,10 +62,17 @@ public final class TestPlugin extends JavaPlugin {
                 .setCookingTime(10)
                 .build();
 
-        recipesAPI.addRecipe(recipe);
-        recipesAPI.addRecipe(recipe2);
-        recipesAPI.addRecipe(recipe3);
-        recipesAPI.addRecipe(recipe4);
+        recipesAPI.addRecipes(List.of(recipe, recipe2, recipe3, recipe4));
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!command.getName().equalsIgnoreCase("codecbench")) {
+            return false;
+        }
+        CodecBenchmark.run(getLogger());
+        sender.sendMessage("Codec benchmark done, see the console.");
+        return true;
     }
 
     @Override